@@ -0,0 +1,84 @@
+package packagebenchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import packagemodel.GeometricSeries;
+import packagemodel.IGSModel;
+import packagemodel.Rational;
+
+/**
+ * Partial sums of the Infinite Geometric Series : the plain recursive fill that replaced
+ * geometricRecursiveHelper, the compensated fill stopping at epsilon, and a full IGSModel run
+ * (compensated sums, exact sums and acceleration). Ratios go from fast convergence to r close to 1
+ * and alternating signs, steps from the 6 animated by the UI to a million.
+ * @author patrickspensieri
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class GeometricSeriesBenchmark
+{
+    @Param({"0.5", "-0.9", "0.999999"})
+    public double r;
+
+    @Param({"6", "1000", "1000000"})
+    public int steps;
+
+    private final double a = 2;
+    private double[] sums;
+    private IGSModel model;
+    private IGSModel exactModel;
+
+    @Setup
+    public void setup()
+    {
+        sums = new double[steps];
+        model = new IGSModel(a, r);
+        model.setEpsilon(0);                    //only stops once a sum rounds to the limit
+        exactModel = new IGSModel(a, 0.5);
+        exactModel.setExactA(Rational.tryParse("2"));
+        exactModel.setExactR(Rational.tryParse("1/2"));
+        exactModel.setEpsilon(0);
+    }
+
+    @Benchmark
+    public double recursive()
+    {
+        return GeometricSeries.fillPartialSums(a, r, sums, steps);
+    }
+
+    @Benchmark
+    public int compensated()
+    {
+        return GeometricSeries.compensatedPartialSums(a, r, GeometricSeries.limit(a, r), 0, sums, steps);
+    }
+
+    @Benchmark
+    public int modelRun()
+    {
+        return model.run(steps);
+    }
+
+    /**
+     * Exact sums grow past longs after a few dozen terms, the run is capped accordingly.
+     * @return : terms used
+     */
+    @Benchmark
+    public int exactModelRun()
+    {
+        return exactModel.run(Math.min(steps, 60));
+    }
+}
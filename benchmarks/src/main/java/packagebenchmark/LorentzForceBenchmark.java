@@ -0,0 +1,88 @@
+package packagebenchmark;
+
+import java.util.concurrent.TimeUnit;
+import javafx.beans.binding.DoubleBinding;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import packagedata.GraphDoubleBinding;
+import packagemodel.DenseTrajectory;
+import packagemodel.LorentzForceModel;
+
+/**
+ * The force, acceleration, total time and final velocity chain of the Rail Gun after a change of the
+ * current, through the model and through the JavaFX properties and bindings used by LorentzForceData,
+ * and the integration of the equations of motion with and without losses. Currents cover the slider
+ * range, masses its two ends.
+ * @author patrickspensieri
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class LorentzForceBenchmark
+{
+    @Param({"100000", "500000", "1000000"})
+    public double current;
+
+    @Param({"2", "10"})
+    public double mass;
+
+    private LorentzForceModel model;
+    private DoubleProperty currentProperty;
+    private DoubleBinding finalVelocity;
+    private double delta;                       //alternates so every operation invalidates the chain
+
+    @Setup
+    public void setup()
+    {
+        model = new LorentzForceModel(current, mass);
+        currentProperty = new SimpleDoubleProperty(current);
+        GraphDoubleBinding.feed(model.getGraph(), model.getCurrentNode(), currentProperty);
+        finalVelocity = new GraphDoubleBinding(model.getGraph(), model.getFinalVelocityNode());
+    }
+
+    @Benchmark
+    public double chain()
+    {
+        delta = -delta + 1;
+        model.setCurrent(current + delta);
+        return model.getFinalVelocity();
+    }
+
+    @Benchmark
+    public double bindings()
+    {
+        delta = -delta + 1;
+        currentProperty.set(current + delta);
+        return finalVelocity.get();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public DenseTrajectory integrateLossFree()
+    {
+        model.setLosses(false);
+        return LorentzForceModel.integrate(model.buildRailGunModel());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public DenseTrajectory integrateWithLosses()
+    {
+        model.setLosses(true);
+        return LorentzForceModel.integrate(model.buildRailGunModel());
+    }
+}
@@ -0,0 +1,90 @@
+package packagebenchmark;
+
+import java.util.concurrent.TimeUnit;
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.beans.binding.DoubleBinding;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import packagedata.GraphDoubleBinding;
+import packagemodel.ResistorsInParallelModel;
+
+/**
+ * Cost of changing one resistor and reading req and the source current back, from 2 resistors (the
+ * UI minimum) to a hundred thousand. The model is measured directly and through the JavaFX properties
+ * and bindings used by ResistorsInParallelData, in incremental mode and with the network solved.
+ * @author patrickspensieri
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ResistorsBenchmark
+{
+    @Param({"2", "5", "1000", "100000"})
+    public int numberRes;
+
+    @Param({"true", "false"})
+    public boolean incremental;
+
+    private ResistorsInParallelModel model;
+    private DoubleProperty resistance;          //property of resistor 0, fed into the model
+    private DoubleBinding req, current;
+    private int next;                           //resistor changed by the next operation
+
+    @Setup
+    public void setup()
+    {
+        model = new ResistorsInParallelModel(numberRes, 3.6, 5.0);
+        model.setIncremental(incremental);
+        resistance = new SimpleDoubleProperty(5.0);
+        resistance.addListener(new InvalidationListener()
+        {
+            @Override
+            public void invalidated(Observable o)
+            {
+                model.setResistance(0, resistance.get());
+            }
+        });
+        req = new GraphDoubleBinding(model.getGraph(), model.getReqNode());
+        current = new GraphDoubleBinding(model.getGraph(), model.getCurrentNode());
+    }
+
+    /**
+     * Returns a resistance different from the current one, so the graph input really changes.
+     * @param resistance : current resistance, in ohms
+     * @return : in ohms
+     */
+    private static double toggle(double resistance)
+    {
+        return (resistance == 5.0) ? 6.0 : 5.0;
+    }
+
+    @Benchmark
+    public double model()
+    {
+        next = (next + 1) % numberRes;
+        model.setResistance(next, toggle(model.getResistance(next)));
+        return model.getEquivalentResistance() + model.getCurrent();
+    }
+
+    @Benchmark
+    public double bindings()
+    {
+        resistance.set(toggle(resistance.get()));
+        return req.get() + current.get();
+    }
+}
@@ -0,0 +1,107 @@
+package packagebenchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javafx.application.Platform;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of appending N points to an XYChart.Series, one add() per point as the original charts did, or
+ * a single addAll() as SeriesBatchFeed does. A detached series measures the observable list alone ; an
+ * attached one also pays for the chart creating a node per point, which needs the JavaFX toolkit and
+ * therefore a display : it is left out of the default run, add -p attached=true to measure it.
+ * @author patrickspensieri
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SeriesAppendBenchmark
+{
+    @Param({"100", "10000", "100000"})
+    public int points;
+
+    @Param({"false"})
+    public boolean attached;
+
+    private XYChart.Series<Number,Number> series;
+    private LineChart<Number,Number> chart;
+    private List<XYChart.Data<Number,Number>> batch;
+
+    @Setup(Level.Trial)
+    public void startToolkit() throws InterruptedException
+    {
+        if(!attached)
+            return;
+        final CountDownLatch started = new CountDownLatch(1);
+        try
+        {
+            Platform.startup(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    started.countDown();
+                }
+            });
+        }
+        catch(IllegalStateException e)      //already started by a previous trial of this fork
+        {
+            started.countDown();
+        }
+        started.await();
+        chart = new LineChart<Number,Number>(new NumberAxis(), new NumberAxis());
+        chart.setAnimated(false);
+        chart.setCreateSymbols(false);
+    }
+
+    /**
+     * Creates an empty series before every append, so each invocation starts from the same state.
+     */
+    @Setup(Level.Invocation)
+    public void emptySeries()
+    {
+        series = new XYChart.Series<Number,Number>();
+        if(attached)
+        {
+            chart.getData().clear();
+            chart.getData().add(series);
+        }
+        batch = new ArrayList<XYChart.Data<Number,Number>>(points);
+    }
+
+    @Benchmark
+    public XYChart.Series<Number,Number> addOneByOne()
+    {
+        for(int i = 0; i < points; i++)
+            series.getData().add(new XYChart.Data<Number,Number>(i, Math.sqrt(i)));
+        return series;
+    }
+
+    @Benchmark
+    public XYChart.Series<Number,Number> addAll()
+    {
+        for(int i = 0; i < points; i++)
+            batch.add(new XYChart.Data<Number,Number>(i, Math.sqrt(i)));
+        series.getData().addAll(batch);
+        return series;
+    }
+}
@@ -0,0 +1,94 @@
+package packagebenchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import packagemodel.ElectronFlow;
+import packagemodel.SimulationClock;
+
+/**
+ * A whole electron flow run of ResistorsInParallelData stepped by the SimulationClock without real
+ * time, and one 60 Hz frame of the same flow at the time scales of the speed slider. Five branches
+ * carry the currents of 3.6 V across resistors of 1 to 5 ohms.
+ * @author patrickspensieri
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SimulationClockBenchmark
+{
+    private static final double TIME_STEP = 1.0 / 120;     //same as AbstractData
+    private static final double FLOW_DURATION = 10;         //emission time of a run, in seconds
+    private static final int BRANCHES = 5;
+
+    @Param({"1", "10", "100"})
+    public double timeScale;
+
+    private ElectronFlow flow;
+    private SimulationClock clock;
+
+    @Setup
+    public void setup()
+    {
+        double[][] pathX = new double[BRANCHES][];
+        double[][] pathY = new double[BRANCHES][];
+        for(int b = 0; b < BRANCHES; b++)
+        {
+            pathX[b] = new double[] {0, 100, 100, 0};
+            pathY[b] = new double[] {0, 0, 20 + 20 * b, 20 + 20 * b};
+        }
+        flow = new ElectronFlow(8192, pathX, pathY);
+        for(int b = 0; b < BRANCHES; b++)
+            flow.setCurrent(b, 3.6 / (b + 1));
+        clock = new SimulationClock(TIME_STEP);
+        clock.setSimulation(new SimulationClock.Simulation()
+        {
+            @Override
+            public void step(double time, double dt)
+            {
+                flow.setEmitting(time < FLOW_DURATION);
+                flow.step(dt);
+            }
+
+            @Override
+            public void render(double time, double alpha)
+            {
+            }
+        });
+        clock.setTimeScale(timeScale);
+        //settle the flow, so frames see a full circuit
+        clock.step((int)(FLOW_DURATION / 2 / TIME_STEP));
+    }
+
+    @Benchmark
+    public int frame()
+    {
+        //stay in the emitting part of the run
+        if(clock.getTime() > FLOW_DURATION * 0.9)
+            clock.setTime(FLOW_DURATION / 2);
+        clock.advance(1.0 / 60);
+        return flow.getCount();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int run()
+    {
+        flow.clear();
+        clock.reset();
+        clock.step((int)(FLOW_DURATION / TIME_STEP));
+        return flow.getCount();
+    }
+}
@@ -5,18 +5,21 @@ import java.util.Random;
 import javafx.animation.Animation;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.scene.Node;
-import javafx.scene.chart.Chart;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.Slider;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
 import javafx.util.StringConverter;
 import javafx.util.converter.NumberStringConverter;
 import packagefx.LearningSimulator;
+import packagemodel.SimulationClock;
 import static packagefx.InterfaceFX.ALIGNMENT_DEFAULT;
 import static packagefx.InterfaceFX.HGAP_DEFAULT;
 import static packagefx.InterfaceFX.VGAP_DEFAULT;
@@ -40,13 +43,23 @@ public abstract class AbstractData
     protected Button[] actionButtonArray;
     protected HBox actionButtonHBox;
     protected Animation animation;
+    protected SimulationClock clock;        //fixed timestep clock the simulations advance from
+    private FrameScheduler clockDriver;     //feeds the real time of every frame to clock
+    protected static final double CLOCK_TIME_STEP = 1.0 / 120;     //in seconds
+    private static final int STEP_BUTTON_STEPS = 12;                //steps taken by the step button
+    private Slider speedSlider;             //time scale of clock, on a log scale
+    private Label speedLabel;
     protected Random random;            //random number generator
+    protected boolean useCanvasPlot = Boolean.getBoolean("learningsimulator.canvasplot");   //CanvasPlot instead of XYChart
 
     
     //label, stringProperty and boolean values used to run the help function
     protected Label helpLabel;
     protected StringProperty helpValue;
     private boolean isHelpOn = false;
+    private boolean[] disabledBeforeHelp;   //state of the action buttons, restored when help is left
+    
+    private boolean built;                  //true once buildGridPane() has filled the mainPane
     
     protected final StringConverter<Number> converter = new NumberStringConverter();    //property converter
 
@@ -61,6 +74,19 @@ public abstract class AbstractData
         mainPane.setHgap(HGAP_DEFAULT);
         mainPane.setVgap(VGAP_DEFAULT);
         mainPane.setAlignment(ALIGNMENT_DEFAULT);
+        
+        clock = new SimulationClock(CLOCK_TIME_STEP);
+        clockDriver = new FrameScheduler()
+        {
+            @Override
+            protected void update(double elapsed, double delta)
+            {
+                clock.advance(delta);
+                //the simulation sets the action buttons when its run ends
+                if(clock.isHalted())
+                    clockDriver.pause();
+            }
+        };
     }
     
     // END CONSTRUCTOR(S) /////////////////////////////////////////////////////////////
@@ -69,10 +95,14 @@ public abstract class AbstractData
      * Builds and returns user interface (action and toggle controls), the animation, and charts
      * contained within the mainPane.
      * @return mainPane : GridPane object containing user interface, animations and charts 
-     * placed respectively in the four quadrants.
+     * placed respectively in the four quadrants. Built once, later calls return the same mainPane
+     * with its current state.
      */
     public GridPane buildGridPane()
     {
+        if(built)
+            return mainPane;
+        built = true;
         helpValue = new SimpleStringProperty(helpStringDefault);
         helpLabel = new Label();
         helpLabel.textProperty().bind(helpValue);
@@ -99,10 +129,52 @@ public abstract class AbstractData
         uiPane.setAlignment(ALIGNMENT_DEFAULT);
         uiPane.add(buildActionControl(), 0, 0);
         uiPane.add(buildToggleControl(), 0, 1);
+        uiPane.add(buildClockControl(), 0, 2);
         
         return uiPane;
     }
     
+    /**
+     * Builds and returns HBox object containing the speed slider of the clock and the step button.
+     * @return : HBox object containing the clock controls.
+     */
+    protected HBox buildClockControl()
+    {
+        speedSlider = new Slider(Math.log10(SimulationClock.MIN_TIME_SCALE), Math.log10(SimulationClock.MAX_TIME_SCALE), 0);
+        speedLabel = new Label(formatSpeed(1));
+        speedLabel.setPrefWidth(50);
+        speedSlider.valueProperty().addListener(new ChangeListener<Number>()
+        {
+            @Override
+            public void changed(ObservableValue<? extends Number> o, Number oldVal, Number newVal)
+            {
+                clock.setTimeScale(Math.pow(10, newVal.doubleValue()));
+                speedLabel.setText(formatSpeed(clock.getTimeScale()));
+            }
+        });
+        Button stepButton = new Button("Step");
+        stepButton.setOnAction(new EventHandler<ActionEvent>()
+        {
+            @Override
+            public void handle(ActionEvent e)
+            {
+                step(STEP_BUTTON_STEPS);
+            }
+        });
+        
+        return new HBox(5, new Label("Speed"), speedSlider, speedLabel, stepButton);
+    }
+    
+    /**
+     * Returns the text displaying a time scale.
+     * @param timeScale : simulated seconds per real second
+     * @return : i.e. "0.5x"
+     */
+    private static String formatSpeed(double timeScale)
+    {
+        return String.format((timeScale < 10) ? "%.1fx" : "%.0fx", timeScale);
+    }
+    
     /**
      * Builds and returns HBox object containing all action controls, with their respective listeners.
      * @return actionButtonHBox : HBox object containing all action buttons.
@@ -148,13 +220,13 @@ public abstract class AbstractData
     protected abstract GridPane buildToggleControl();
     
     /**
-     * Builds and return primary chart.
+     * Builds and return primary chart, a CanvasPlot when useCanvasPlot is set.
      * @return 
      */
-    protected abstract Chart buildChart1();
+    protected abstract Node buildChart1();
     
     /**
-     * Builds and return secondary chart.
+     * Builds and return secondary chart, a CanvasPlot when useCanvasPlot is set.
      * @return 
      */
     protected abstract Node buildChart2(); 
@@ -178,12 +250,79 @@ public abstract class AbstractData
         LearningSimulator.centerAccordion();
     }
     
+    /**
+     * Stops the animation and the frame clock so this data class can be dropped. Subclasses stop
+     * their own workers and schedulers, then call this method.
+     */
+    public void dispose()
+    {
+        if(animation != null)
+            animation.stop();
+        clockDriver.cancel();
+    }
+    
+    /**
+     * Runs a simulation on the clock from time 0, pause() and continueAnimation() then act on the clock.
+     * @param simulation : simulation to advance every frame
+     */
+    protected void runClock(SimulationClock.Simulation simulation)
+    {
+        clock.setSimulation(simulation);
+        clockDriver.restart();
+    }
+    
+    /**
+     * Stops the clock, the simulation is no longer advanced.
+     */
+    protected void stopClock()
+    {
+        clockDriver.cancel();
+    }
+    
+    /**
+     * Pauses the clock and advances the current simulation by exactly n time steps, whatever the
+     * frame rate, e.g. to inspect or reproduce a run step by step.
+     * @param n : number of steps of CLOCK_TIME_STEP
+     * @return : number of steps taken, fewer if the run ended
+     */
+    public int step(int n)
+    {
+        if(clock.getSimulation() == null)
+            return 0;
+        if(clockDriver.isRunning())
+            pause();
+        return clock.step(n);
+    }
+    
+    /**
+     * Sets the simulated seconds per real second of the clock.
+     * @param timeScale : from SimulationClock.MIN_TIME_SCALE to SimulationClock.MAX_TIME_SCALE
+     */
+    public void setTimeScale(double timeScale)
+    {
+        clock.setTimeScale(timeScale);
+        if(speedSlider != null)
+            speedSlider.setValue(Math.log10(clock.getTimeScale()));
+    }
+
+    /**
+     * Chooses between CanvasPlot and the XYChart classes for the charts. Takes effect when the
+     * charts are built, so call it before buildGridPane().
+     * @param useCanvasPlot : true to draw the charts with CanvasPlot
+     */
+    public void setUseCanvasPlot(boolean useCanvasPlot)
+    {
+        this.useCanvasPlot = useCanvasPlot;
+    }
+
     /**
      * Pauses the respective animation.
      */
     protected void pause()
     {
-            animation.pause();
+            clockDriver.pause();
+            if(animation != null)
+                animation.pause();
             actionButtonArray[1].setDisable(true);
             actionButtonArray[2].setDisable(false);
     }
@@ -193,7 +332,10 @@ public abstract class AbstractData
      */
     protected void continueAnimation()
     {
-            animation.play();
+            if(clock.getSimulation() != null && !clock.isHalted())
+                clockDriver.play();
+            if(animation != null && animation.getStatus() == Animation.Status.PAUSED)
+                animation.play();
             actionButtonArray[2].setDisable(true);
             actionButtonArray[1].setDisable(false);
     }
@@ -205,11 +347,15 @@ public abstract class AbstractData
     {   
         if(isHelpOn == true)
         {
-            LearningSimulator.exitHelp();
+            exitHelp();
             isHelpOn = false;
+            LearningSimulator.exitHelp();
         }
         
         else {        
+            disabledBeforeHelp = new boolean[actionButtonArray.length];
+            for(int i = 0; i < actionButtonArray.length; i++)
+                disabledBeforeHelp[i] = actionButtonArray[i].isDisable();
             helpLabel.setVisible(true);
             helpLabel.setOpacity(1);
         
@@ -307,6 +453,29 @@ public abstract class AbstractData
         }
     }
     
+    /**
+     * Restores the nodes and action buttons as they were before help was turned on.
+     */
+    protected void exitHelp()
+    {
+        helpLabel.setVisible(false);
+        helpValue.setValue(helpStringDefault);
+        for(int i = 0; i < mainPane.getChildren().size(); i++)
+        {
+            Node child = mainPane.getChildren().get(i);
+            child.setOpacity(1);
+            child.setOnMouseEntered(null);
+            child.setOnMouseExited(null);
+        }
+        for(int i = 0; i < actionButtonArray.length; i++)
+        {
+            actionButtonArray[i].setOpacity(1);
+            actionButtonArray[i].setOnMouseEntered(null);
+            actionButtonArray[i].setOnMouseExited(null);
+            actionButtonArray[i].setDisable(disabledBeforeHelp[i]);
+        }
+    }
+    
     /**
      * Resets all toggle controls to default values (abstract).
      */
@@ -0,0 +1,594 @@
+package packagedata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * Plot drawn on a Canvas straight from primitive double[] buffers, an alternative to XYChart for
+ * large data sets. Each series is drawn as a line, scatter points or bars, the axes range
+ * automatically or between fixed bounds.
+ * <p>
+ * No node is created per point. Lines are decimated to four points per pixel column (first, min, max
+ * and last, the M4 algorithm), which draws the same pixels as the full line. Large scatter series are
+ * each rasterized into an image and bars are reduced to one min/max span per column, so a redraw costs one
+ * pass over the points. Redraws requested by requestRedraw() are coalesced to one per pulse.
+ * @author patrickspensieri
+ */
+public class CanvasPlot extends Region
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    public enum Mode { LINE, SCATTER, BAR }
+
+    private static final double LEFT_MARGIN = 60, RIGHT_MARGIN = 15, TOP_MARGIN = 15, BOTTOM_MARGIN = 45;
+    private static final int TARGET_TICKS = 8;
+    private static final int DOT_LIMIT = 2000;          //larger scatter series are rasterized
+    private static final double DOT_RADIUS = 3;
+
+    private static class Series
+    {
+        final String name;
+        final Mode mode;
+        final Color color;
+        double[] x, y;
+        int count;
+        WritableImage raster;                           //scatter points, when there are too many for dots
+        int[] rasterPixels;
+
+        Series(String name, Mode mode, Color color)
+        {
+            this.name = name;
+            this.mode = mode;
+            this.color = color;
+        }
+    }
+
+    private final Canvas canvas = new Canvas();
+    private final List<Series> series = new ArrayList<Series>();
+    private String xLabel = "", yLabel = "";
+    private String[] xTickLabels;                       //category labels at x = 0, 1, 2..., null for numbers
+    private boolean xAuto = true, yAuto = true;
+    private double xMin = 0, xMax = 1, yMin = 0, yMax = 1;
+    private double barWidth = 0.8;                      //in x units
+
+    private boolean dirty = true;
+    private double[] lineX = new double[0], lineY = new double[0];     //decimated polyline, in pixels
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    public CanvasPlot()
+    {
+        getChildren().add(canvas);
+        setPrefSize(500, 400);
+        setMinSize(150, 100);
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    /**
+     * Adds an empty series.
+     * @param name : shown in the legend, null for none
+     * @param mode : line, scatter points or bars
+     * @param color : color of the series
+     * @return : index of the series
+     */
+    public int addSeries(String name, Mode mode, Color color)
+    {
+        series.add(new Series(name, mode, color));
+        requestRedraw();
+        return series.size() - 1;
+    }
+
+    /**
+     * Points a series at its buffers. The buffers are not copied : after changing their content or
+     * the count, call requestRedraw(). Lines expect x in increasing order.
+     * @param index : index of the series
+     * @param x : x values
+     * @param y : y values
+     * @param count : number of points, from index 0
+     */
+    public void setData(int index, double[] x, double[] y, int count)
+    {
+        Series s = series.get(index);
+        s.x = x;
+        s.y = y;
+        s.count = count;
+        requestRedraw();
+    }
+
+    /**
+     * Changes the number of points of a series, e.g. to reveal a precomputed curve.
+     * @param index : index of the series
+     * @param count : number of points, from index 0
+     */
+    public void setCount(int index, int count)
+    {
+        series.get(index).count = count;
+        requestRedraw();
+    }
+
+    public void setXLabel(String xLabel)
+    {
+        this.xLabel = xLabel;
+        requestRedraw();
+    }
+
+    public void setYLabel(String yLabel)
+    {
+        this.yLabel = yLabel;
+        requestRedraw();
+    }
+
+    /**
+     * Labels the x axis with categories, category i being at x = i.
+     * @param labels : one label per category, null to label numbers
+     */
+    public void setXTickLabels(String[] labels)
+    {
+        xTickLabels = labels;
+        requestRedraw();
+    }
+
+    /**
+     * Fixes the x range, or lets it follow the data.
+     * @param min : lower bound
+     * @param max : upper bound
+     * @param auto : true to range automatically, min and max are then ignored
+     */
+    public void setXRange(double min, double max, boolean auto)
+    {
+        xMin = min;
+        xMax = max;
+        xAuto = auto;
+        requestRedraw();
+    }
+
+    /**
+     * Fixes the y range, or lets it follow the data.
+     * @param min : lower bound
+     * @param max : upper bound
+     * @param auto : true to range automatically, min and max are then ignored
+     */
+    public void setYRange(double min, double max, boolean auto)
+    {
+        yMin = min;
+        yMax = max;
+        yAuto = auto;
+        requestRedraw();
+    }
+
+    /**
+     * Sets the width of the bars.
+     * @param barWidth : in x units
+     */
+    public void setBarWidth(double barWidth)
+    {
+        this.barWidth = barWidth;
+        requestRedraw();
+    }
+
+    /**
+     * Schedules a redraw at the next pulse, several requests within one pulse draw once.
+     */
+    public void requestRedraw()
+    {
+        dirty = true;
+        requestLayout();
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+
+    // USER INTERFACE METHODS //////////////////////////////////////////////////
+    @Override
+    protected void layoutChildren()
+    {
+        if(canvas.getWidth() != getWidth() || canvas.getHeight() != getHeight())
+        {
+            canvas.setWidth(getWidth());
+            canvas.setHeight(getHeight());
+            dirty = true;
+        }
+        if(dirty)
+            redraw();
+    }
+
+    /**
+     * Draws the axes and every series.
+     */
+    public void redraw()
+    {
+        dirty = false;
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        gc.clearRect(0, 0, width, height);
+        double plotWidth = width - LEFT_MARGIN - RIGHT_MARGIN;
+        double plotHeight = height - TOP_MARGIN - BOTTOM_MARGIN;
+        if(plotWidth < 1 || plotHeight < 1)
+            return;
+
+        double[] xRange = {xMin, xMax};
+        double[] yRange = {yMin, yMax};
+        autoRange(xRange, yRange);
+        double xStep = niceStep((xRange[1] - xRange[0]) / TARGET_TICKS);
+        double yStep = niceStep((yRange[1] - yRange[0]) / TARGET_TICKS);
+        if(xAuto && xTickLabels == null)
+            roundRange(xRange, xStep);
+        if(yAuto)
+            roundRange(yRange, yStep);
+
+        //pixel = origin + scale * value
+        double xScale = plotWidth / (xRange[1] - xRange[0]);
+        double xOrigin = LEFT_MARGIN - xScale * xRange[0];
+        double yScale = -plotHeight / (yRange[1] - yRange[0]);
+        double yOrigin = TOP_MARGIN + plotHeight - yScale * yRange[0];
+
+        drawAxes(gc, plotWidth, plotHeight, xRange, yRange, xStep, yStep, xScale, xOrigin, yScale, yOrigin);
+
+        gc.save();
+        gc.beginPath();
+        gc.rect(LEFT_MARGIN, TOP_MARGIN, plotWidth, plotHeight);
+        gc.clip();
+        for(int i = 0; i < series.size(); i++)
+        {
+            Series s = series.get(i);
+            if(s.count <= 0)
+                continue;
+            switch(s.mode)
+            {
+                case LINE :
+                    drawLine(gc, s, xScale, xOrigin, yScale, yOrigin, plotWidth);
+                    break;
+                case SCATTER :
+                    drawScatter(gc, s, xScale, xOrigin, yScale, yOrigin, plotWidth, plotHeight);
+                    break;
+                default :
+                    drawBars(gc, s, xScale, xOrigin, yScale, yOrigin, plotWidth, yRange);
+            }
+        }
+        gc.restore();
+        drawLegend(gc, width);
+    }
+
+    /**
+     * Replaces the automatic bounds by the extent of the data, bars always include 0.
+     * @param xRange : {min, max}, updated when x is automatic
+     * @param yRange : {min, max}, updated when y is automatic
+     */
+    private void autoRange(double[] xRange, double[] yRange)
+    {
+        double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for(int i = 0; i < series.size(); i++)
+        {
+            Series s = series.get(i);
+            for(int k = 0; k < s.count; k++)
+            {
+                double x = s.x[k];
+                double y = s.y[k];
+                if(x < minX) minX = x;
+                if(x > maxX) maxX = x;
+                if(y < minY) minY = y;
+                if(y > maxY) maxY = y;
+            }
+            if(s.mode == Mode.BAR && s.count > 0)
+            {
+                minX -= barWidth / 2;
+                maxX += barWidth / 2;
+                minY = Math.min(minY, 0);
+                maxY = Math.max(maxY, 0);
+            }
+        }
+        if(xAuto && minX <= maxX)
+        {
+            xRange[0] = minX;
+            xRange[1] = maxX;
+        }
+        if(yAuto && minY <= maxY)
+        {
+            yRange[0] = minY;
+            yRange[1] = maxY;
+        }
+        widen(xRange);
+        widen(yRange);
+    }
+
+    /**
+     * Gives an empty range a width, so it can be scaled.
+     * @param range : {min, max}
+     */
+    private static void widen(double[] range)
+    {
+        if(range[1] - range[0] <= 0)
+        {
+            double half = (range[0] == 0) ? 1 : Math.abs(range[0]) * 0.5;
+            range[0] -= half;
+            range[1] += half;
+        }
+    }
+
+    /**
+     * Returns a tick spacing of 1, 2 or 5 times a power of ten, close to a raw spacing.
+     * @param raw : spacing
+     * @return : nice spacing
+     */
+    private static double niceStep(double raw)
+    {
+        double magnitude = Math.pow(10, Math.floor(Math.log10(raw)));
+        double fraction = raw / magnitude;
+        if(fraction < 1.5)
+            return magnitude;
+        if(fraction < 3.5)
+            return 2 * magnitude;
+        if(fraction < 7.5)
+            return 5 * magnitude;
+        return 10 * magnitude;
+    }
+
+    /**
+     * Extends a range outwards to whole ticks.
+     * @param range : {min, max}
+     * @param step : tick spacing
+     */
+    private static void roundRange(double[] range, double step)
+    {
+        range[0] = Math.floor(range[0] / step) * step;
+        range[1] = Math.ceil(range[1] / step) * step;
+    }
+
+    /**
+     * Formats a tick value with as many decimals as the spacing needs.
+     * @param value : tick value
+     * @param step : tick spacing
+     * @return : label
+     */
+    private static String formatTick(double value, double step)
+    {
+        int decimals = Math.max(0, (int)Math.ceil(-Math.log10(step)));
+        if(Math.abs(value) < step / 2)
+            value = 0;
+        return String.format("%." + decimals + "f", value);
+    }
+
+    private void drawAxes(GraphicsContext gc, double plotWidth, double plotHeight, double[] xRange,
+            double[] yRange, double xStep, double yStep, double xScale, double xOrigin, double yScale,
+            double yOrigin)
+    {
+        double bottom = TOP_MARGIN + plotHeight;
+        gc.setLineWidth(1);
+        gc.setFill(Color.BLACK);
+        gc.setFont(Font.font(11));
+
+        //horizontal grid and y ticks
+        gc.setTextAlign(TextAlignment.RIGHT);
+        gc.setTextBaseline(VPos.CENTER);
+        for(double y = Math.ceil(yRange[0] / yStep) * yStep; y <= yRange[1] + yStep * 1e-9; y += yStep)
+        {
+            double py = Math.round(yOrigin + yScale * y) + 0.5;
+            gc.setStroke(Color.gray(0.9));
+            gc.strokeLine(LEFT_MARGIN, py, LEFT_MARGIN + plotWidth, py);
+            gc.fillText(formatTick(y, yStep), LEFT_MARGIN - 5, py);
+        }
+
+        //vertical grid and x ticks, or one label per category
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.TOP);
+        if(xTickLabels != null)
+        {
+            for(int i = 0; i < xTickLabels.length; i++)
+            {
+                double px = xOrigin + xScale * i;
+                if(px >= LEFT_MARGIN && px <= LEFT_MARGIN + plotWidth)
+                    gc.fillText(xTickLabels[i], px, bottom + 4);
+            }
+        }
+        else
+        {
+            for(double x = Math.ceil(xRange[0] / xStep) * xStep; x <= xRange[1] + xStep * 1e-9; x += xStep)
+            {
+                double px = Math.round(xOrigin + xScale * x) + 0.5;
+                gc.setStroke(Color.gray(0.9));
+                gc.strokeLine(px, TOP_MARGIN, px, bottom);
+                gc.fillText(formatTick(x, xStep), px, bottom + 4);
+            }
+        }
+
+        gc.setStroke(Color.BLACK);
+        gc.strokeRect(LEFT_MARGIN + 0.5, TOP_MARGIN + 0.5, plotWidth, plotHeight);
+        gc.fillText(xLabel, LEFT_MARGIN + plotWidth / 2, bottom + 22);
+        gc.save();
+        gc.translate(12, TOP_MARGIN + plotHeight / 2);
+        gc.rotate(-90);
+        gc.fillText(yLabel, 0, -6);
+        gc.restore();
+    }
+
+    /**
+     * Strokes a line, decimated to the first, min, max and last point of every pixel column when it
+     * holds more points than that.
+     */
+    private void drawLine(GraphicsContext gc, Series s, double xScale, double xOrigin, double yScale,
+            double yOrigin, double plotWidth)
+    {
+        int columns = (int)Math.ceil(plotWidth) + 2;
+        int n = 0;
+        if(s.count <= 4 * columns)
+        {
+            ensureLineCapacity(s.count);
+            for(int k = 0; k < s.count; k++)
+            {
+                lineX[k] = xOrigin + xScale * s.x[k];
+                lineY[k] = yOrigin + yScale * s.y[k];
+            }
+            n = s.count;
+        }
+        else
+        {
+            ensureLineCapacity(4 * columns + 4);
+            int k = 0;
+            while(k < s.count)
+            {
+                double px = xOrigin + xScale * s.x[k];
+                int column = (int)Math.floor(px);
+                int first = k, last = k, min = k, max = k;
+                k++;
+                while(k < s.count && (int)Math.floor(xOrigin + xScale * s.x[k]) == column)
+                {
+                    if(s.y[k] < s.y[min]) min = k;
+                    if(s.y[k] > s.y[max]) max = k;
+                    last = k;
+                    k++;
+                }
+                //emit the four extremes in index order, skipping repeats
+                int lower = Math.min(min, max);
+                int upper = Math.max(min, max);
+                n = emit(s, first, n, xScale, xOrigin, yScale, yOrigin);
+                if(lower != first)
+                    n = emit(s, lower, n, xScale, xOrigin, yScale, yOrigin);
+                if(upper != lower && upper != first)
+                    n = emit(s, upper, n, xScale, xOrigin, yScale, yOrigin);
+                if(last != upper && last != first)
+                    n = emit(s, last, n, xScale, xOrigin, yScale, yOrigin);
+            }
+        }
+        gc.setStroke(s.color);
+        gc.setLineWidth(1.5);
+        gc.strokePolyline(lineX, lineY, n);
+    }
+
+    private int emit(Series s, int k, int n, double xScale, double xOrigin, double yScale, double yOrigin)
+    {
+        if(n == lineX.length)
+            ensureLineCapacity(2 * n);
+        lineX[n] = xOrigin + xScale * s.x[k];
+        lineY[n] = yOrigin + yScale * s.y[k];
+        return n + 1;
+    }
+
+    private void ensureLineCapacity(int capacity)
+    {
+        if(lineX.length < capacity)
+        {
+            lineX = Arrays.copyOf(lineX, capacity);
+            lineY = Arrays.copyOf(lineY, capacity);
+        }
+    }
+
+    /**
+     * Draws scatter points as dots, or into the raster image of the series when there are too many for
+     * dots. Every series keeps its own raster, since the canvas reads the pixels only when it renders.
+     */
+    private void drawScatter(GraphicsContext gc, Series s, double xScale, double xOrigin, double yScale,
+            double yOrigin, double plotWidth, double plotHeight)
+    {
+        if(s.count <= DOT_LIMIT)
+        {
+            gc.setFill(s.color);
+            for(int k = 0; k < s.count; k++)
+            {
+                gc.fillOval(xOrigin + xScale * s.x[k] - DOT_RADIUS, yOrigin + yScale * s.y[k] - DOT_RADIUS,
+                        2 * DOT_RADIUS, 2 * DOT_RADIUS);
+            }
+            return;
+        }
+
+        int w = (int)plotWidth;
+        int h = (int)plotHeight;
+        if(s.raster == null || (int)s.raster.getWidth() != w || (int)s.raster.getHeight() != h)
+        {
+            s.raster = new WritableImage(w, h);
+            s.rasterPixels = new int[w * h];
+        }
+        int[] rasterPixels = s.rasterPixels;
+        Arrays.fill(rasterPixels, 0);
+        int argb = 0xff000000 | ((int)Math.round(s.color.getRed() * 255) << 16)
+                | ((int)Math.round(s.color.getGreen() * 255) << 8) | (int)Math.round(s.color.getBlue() * 255);
+        for(int k = 0; k < s.count; k++)
+        {
+            int px = (int)(xOrigin + xScale * s.x[k] - LEFT_MARGIN);
+            int py = (int)(yOrigin + yScale * s.y[k] - TOP_MARGIN);
+            //2 x 2 pixels per point
+            for(int dy = 0; dy < 2; dy++)
+            {
+                for(int dx = 0; dx < 2; dx++)
+                {
+                    int x = px + dx, y = py + dy;
+                    if(x >= 0 && x < w && y >= 0 && y < h)
+                        rasterPixels[y * w + x] = argb;
+                }
+            }
+        }
+        s.raster.getPixelWriter().setPixels(0, 0, w, h, PixelFormat.getIntArgbInstance(), rasterPixels, 0, w);
+        gc.drawImage(s.raster, LEFT_MARGIN, TOP_MARGIN);
+    }
+
+    /**
+     * Fills one bar per point from 0 to its value, or one min/max span per pixel column when the
+     * bars are thinner than a pixel.
+     */
+    private void drawBars(GraphicsContext gc, Series s, double xScale, double xOrigin, double yScale,
+            double yOrigin, double plotWidth, double[] yRange)
+    {
+        double base = yOrigin + yScale * Math.max(yRange[0], Math.min(0, yRange[1]));
+        gc.setFill(s.color);
+        double pixelWidth = barWidth * xScale;
+        if(pixelWidth >= 1 || s.count <= plotWidth)
+        {
+            for(int k = 0; k < s.count; k++)
+            {
+                double px = xOrigin + xScale * s.x[k];
+                double py = yOrigin + yScale * s.y[k];
+                gc.fillRect(px - pixelWidth / 2, Math.min(py, base), Math.max(pixelWidth, 1), Math.abs(base - py));
+            }
+            return;
+        }
+        int k = 0;
+        while(k < s.count)
+        {
+            int column = (int)Math.floor(xOrigin + xScale * s.x[k]);
+            double top = Math.min(base, yOrigin + yScale * s.y[k]);
+            double bottom = Math.max(base, yOrigin + yScale * s.y[k]);
+            k++;
+            while(k < s.count && (int)Math.floor(xOrigin + xScale * s.x[k]) == column)
+            {
+                double py = yOrigin + yScale * s.y[k];
+                top = Math.min(top, py);
+                bottom = Math.max(bottom, py);
+                k++;
+            }
+            gc.fillRect(column, top, 1, bottom - top);
+        }
+    }
+
+    /**
+     * Lists the named series in the top right corner.
+     */
+    private void drawLegend(GraphicsContext gc, double width)
+    {
+        gc.setTextAlign(TextAlignment.RIGHT);
+        gc.setTextBaseline(VPos.TOP);
+        double y = TOP_MARGIN + 4;
+        for(int i = 0; i < series.size(); i++)
+        {
+            Series s = series.get(i);
+            if(s.name == null)
+                continue;
+            gc.setFill(s.color);
+            gc.fillText(s.name, width - RIGHT_MARGIN - 6, y);
+            y += 14;
+        }
+    }
+
+    // END USER INTERFACE METHODS //////////////////////////////////////////////
+}
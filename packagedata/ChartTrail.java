@@ -0,0 +1,93 @@
+package packagedata;
+
+import javafx.geometry.Point2D;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.paint.Color;
+import packagemodel.SampleRingBuffer;
+
+/**
+ * Canvas laid over an XYChart that draws the recent history of a point as a fading trail. The samples
+ * stay in a SampleRingBuffer, no chart node is created per sample : every redraw maps them to pixels
+ * through the axes and paints them on the same canvas.
+ * @author patrickspensieri
+ */
+public class ChartTrail extends Canvas
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    private static final double DOT_RADIUS = 2.0;
+
+    private final NumberAxis xAxis, yAxis;
+    private final Color color;
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    public ChartTrail(NumberAxis xAxis, NumberAxis yAxis, Color color)
+    {
+        this.xAxis = xAxis;
+        this.yAxis = yAxis;
+        this.color = color;
+        setMouseTransparent(true);
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // USER INTERFACE METHODS //////////////////////////////////////////////////
+    /**
+     * Redraws the trail, each sample fading out linearly with its age.
+     * @param samples : history, (x, y) in axis units
+     * @param now : current time, in seconds
+     * @param fadeTime : age at which a sample becomes invisible, in seconds
+     */
+    public void draw(SampleRingBuffer samples, double now, double fadeTime)
+    {
+        GraphicsContext gc = getGraphicsContext2D();
+        gc.clearRect(0, 0, getWidth(), getHeight());
+        if(samples.size() == 0 || xAxis.getScene() == null)
+            return;
+
+        //axes are linear : pixel = origin + scale * value, measured once per redraw
+        Point2D x0 = sceneToLocal(xAxis.localToScene(xAxis.getDisplayPosition(xAxis.getLowerBound()), 0));
+        Point2D x1 = sceneToLocal(xAxis.localToScene(xAxis.getDisplayPosition(xAxis.getUpperBound()), 0));
+        Point2D y0 = sceneToLocal(yAxis.localToScene(0, yAxis.getDisplayPosition(yAxis.getLowerBound())));
+        Point2D y1 = sceneToLocal(yAxis.localToScene(0, yAxis.getDisplayPosition(yAxis.getUpperBound())));
+        double xRange = xAxis.getUpperBound() - xAxis.getLowerBound();
+        double yRange = yAxis.getUpperBound() - yAxis.getLowerBound();
+        if(xRange <= 0 || yRange <= 0)
+            return;
+        double xScale = (x1.getX() - x0.getX()) / xRange;
+        double xOrigin = x0.getX() - xScale * xAxis.getLowerBound();
+        double yScale = (y1.getY() - y0.getY()) / yRange;
+        double yOrigin = y0.getY() - yScale * yAxis.getLowerBound();
+
+        gc.save();
+        gc.beginPath();
+        gc.rect(Math.min(x0.getX(), x1.getX()), Math.min(y0.getY(), y1.getY()),
+                Math.abs(x1.getX() - x0.getX()), Math.abs(y1.getY() - y0.getY()));
+        gc.clip();
+        gc.setStroke(color);
+        gc.setFill(color);
+
+        double previousX = 0, previousY = 0;
+        for(int i = 0; i < samples.size(); i++)
+        {
+            double alpha = 1.0 - (now - samples.getTime(i)) / fadeTime;
+            double px = xOrigin + xScale * samples.getX(i);
+            double py = yOrigin + yScale * samples.getY(i);
+            if(alpha > 0)
+            {
+                gc.setGlobalAlpha(Math.min(alpha, 1.0));
+                if(i > 0)
+                    gc.strokeLine(previousX, previousY, px, py);
+                gc.fillOval(px - DOT_RADIUS, py - DOT_RADIUS, 2 * DOT_RADIUS, 2 * DOT_RADIUS);
+            }
+            previousX = px;
+            previousY = py;
+        }
+        gc.restore();
+    }
+
+    // END USER INTERFACE METHODS //////////////////////////////////////////////
+}
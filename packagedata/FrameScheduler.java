@@ -0,0 +1,105 @@
+package packagedata;
+
+import javafx.animation.AnimationTimer;
+
+/**
+ * Frame clock for animations that are computed rather than built from transitions. Subclasses
+ * receive the elapsed and delta time (in seconds) on every pulse and update their nodes directly,
+ * so a run allocates no Animation objects however many steps it has.
+ * @author patrickspensieri
+ */
+public abstract class FrameScheduler extends AnimationTimer
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    private long lastFrame = -1;            //timestamp of the previous pulse, -1 before the first one
+    private double elapsed;                 //in seconds, only advances while running
+    private boolean running;
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    /**
+     * Starts or resumes the clock from the current elapsed time.
+     */
+    public void play()
+    {
+        if(running)
+            return;
+        lastFrame = -1;
+        running = true;
+        start();
+    }
+
+    /**
+     * Pauses the clock, the elapsed time is kept.
+     */
+    public void pause()
+    {
+        running = false;
+        stop();
+    }
+
+    /**
+     * Stops the clock and rewinds the elapsed time to zero.
+     */
+    public void cancel()
+    {
+        pause();
+        elapsed = 0;
+    }
+
+    /**
+     * Rewinds the elapsed time to zero and starts the clock.
+     */
+    public void restart()
+    {
+        cancel();
+        play();
+    }
+
+    /**
+     * Moves the clock to the given elapsed time, whether it is running or paused.
+     * @param elapsed : new elapsed time, in seconds
+     */
+    public void setElapsed(double elapsed)
+    {
+        this.elapsed = elapsed;
+        lastFrame = -1;
+    }
+
+    /**
+     * Returns true while the clock is running.
+     * @return : running
+     */
+    public boolean isRunning()
+    {
+        return running;
+    }
+
+    /**
+     * Returns the time the clock has been running, in seconds.
+     * @return : elapsed
+     */
+    public double getElapsed()
+    {
+        return elapsed;
+    }
+
+    @Override
+    public void handle(long now)
+    {
+        double delta = (lastFrame < 0) ? 0 : (now - lastFrame) / 1.0e9;
+        lastFrame = now;
+        elapsed += delta;
+        update(elapsed, delta);
+    }
+
+    /**
+     * Called on every pulse while the clock is running.
+     * @param elapsed : seconds since the clock was started, pauses excluded
+     * @param delta : seconds since the previous pulse
+     */
+    protected abstract void update(double elapsed, double delta);
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
@@ -0,0 +1,71 @@
+package packagedata;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.beans.binding.DoubleBinding;
+import javafx.beans.value.ObservableNumberValue;
+import packagemodel.ComputeGraph;
+
+/**
+ * Exposes a node of a ComputeGraph as a JavaFX DoubleBinding, so labels and charts can bind to it.
+ * The binding is invalidated by the graph itself when the node becomes dirty and reads the cached
+ * value of the node when it is evaluated.
+ * @author patrickspensieri
+ */
+public class GraphDoubleBinding extends DoubleBinding implements ComputeGraph.Observer
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    private final ComputeGraph graph;
+    private final int node;
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    /**
+     * Creates the binding of a node, it becomes the observer of that node.
+     * @param graph : graph holding the node
+     * @param node : id of the node
+     */
+    public GraphDoubleBinding(ComputeGraph graph, int node)
+    {
+        this.graph = graph;
+        this.node = node;
+        graph.setObserver(node, this);
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    @Override
+    protected double computeValue()
+    {
+        return graph.get(node);
+    }
+
+    @Override
+    public void nodeInvalidated(int node)
+    {
+        invalidate();
+    }
+
+    /**
+     * Keeps an input node of a graph equal to an observable number, starting with its current value.
+     * @param graph : graph holding the input
+     * @param input : id of the input node
+     * @param source : value copied into the input whenever it changes
+     */
+    public static void feed(final ComputeGraph graph, final int input, final ObservableNumberValue source)
+    {
+        graph.set(input, source.doubleValue());
+        source.addListener(new InvalidationListener()
+        {
+            @Override
+            public void invalidated(Observable o)
+            {
+                graph.set(input, source.doubleValue());
+            }
+        });
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
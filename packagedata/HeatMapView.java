@@ -0,0 +1,89 @@
+package packagedata;
+
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+/**
+ * ImageView showing a grid of values as a colour heat map, painted tile by tile through a PixelWriter.
+ * Must be used from the JavaFX application thread.
+ * @author patrickspensieri
+ */
+public class HeatMapView extends ImageView
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    private static final int PALETTE_SIZE = 256;
+    //anchor colours of the palette, from low to high values
+    private static final Color[] PALETTE_ANCHORS = {Color.rgb(48, 18, 59), Color.rgb(50, 130, 220),
+        Color.rgb(30, 200, 140), Color.rgb(240, 220, 50), Color.rgb(200, 40, 20)};
+
+    private final WritableImage image;
+    private final int[] palette;
+    private int[] pixels;                       //reused buffer of one tile
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    public HeatMapView(int width, int height)
+    {
+        image = new WritableImage(width, height);
+        setImage(image);
+        palette = buildPalette();
+        pixels = new int[0];
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // USER INTERFACE METHODS //////////////////////////////////////////////////
+    /**
+     * Paints a region of a row-major grid of values, mapping [min, max] onto the palette.
+     * @param values : row-major grid, same size as the image
+     * @param x : left column of the region
+     * @param y : top row of the region
+     * @param regionWidth : columns in the region
+     * @param regionHeight : rows in the region
+     * @param min : value shown with the first palette colour
+     * @param max : value shown with the last palette colour
+     */
+    public void paintRegion(double[] values, int x, int y, int regionWidth, int regionHeight, double min, double max)
+    {
+        int gridWidth = (int)image.getWidth();
+        if(pixels.length < regionWidth * regionHeight)
+            pixels = new int[regionWidth * regionHeight];
+
+        double scale = (max > min) ? (PALETTE_SIZE - 1) / (max - min) : 0;
+        for(int row = 0; row < regionHeight; row++)
+        {
+            int source = (y + row) * gridWidth + x;
+            int target = row * regionWidth;
+            for(int col = 0; col < regionWidth; col++)
+            {
+                int index = (int)((values[source + col] - min) * scale);
+                pixels[target + col] = palette[Math.max(0, Math.min(PALETTE_SIZE - 1, index))];
+            }
+        }
+        image.getPixelWriter().setPixels(x, y, regionWidth, regionHeight, PixelFormat.getIntArgbInstance(),
+                pixels, 0, regionWidth);
+    }
+
+    /**
+     * Interpolates the anchor colours into an ARGB lookup table.
+     * @return : palette
+     */
+    private static int[] buildPalette()
+    {
+        int[] table = new int[PALETTE_SIZE];
+        for(int i = 0; i < PALETTE_SIZE; i++)
+        {
+            double position = (double)i / (PALETTE_SIZE - 1) * (PALETTE_ANCHORS.length - 1);
+            int anchor = Math.min((int)position, PALETTE_ANCHORS.length - 2);
+            Color c = PALETTE_ANCHORS[anchor].interpolate(PALETTE_ANCHORS[anchor + 1], position - anchor);
+            table[i] = 0xFF000000 | ((int)Math.round(c.getRed() * 255) << 16)
+                    | ((int)Math.round(c.getGreen() * 255) << 8) | (int)Math.round(c.getBlue() * 255);
+        }
+        return table;
+    }
+
+    // END USER INTERFACE METHODS //////////////////////////////////////////////
+}
@@ -1,23 +1,18 @@
 package packagedata;
 
-import javafx.animation.ParallelTransition;
-import javafx.animation.ScaleTransition;
-import javafx.animation.SequentialTransition;
 import javafx.beans.binding.Bindings;
 import javafx.beans.binding.DoubleBinding;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
-import javafx.event.ActionEvent;
-import javafx.event.EventHandler;
 import javafx.geometry.VPos;
 import javafx.scene.Node;
-import javafx.scene.chart.Chart;
 import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.ScatterChart;
 import javafx.scene.chart.XYChart;
 import javafx.scene.control.Label;
+import javafx.scene.control.Slider;
 import javafx.scene.control.TextField;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
@@ -29,10 +24,15 @@ import javafx.scene.shape.ArcType;
 import javafx.scene.shape.Circle;
 import javafx.scene.text.Font;
 import javafx.scene.text.Text;
-import javafx.util.Duration;
+import packagefx.ImageCache;
+import packagemodel.GeometricSeries;
+import packagemodel.IGSModel;
+import packagemodel.Rational;
+import packagemodel.SimulationClock;
 import static packagefx.InterfaceFX.CANVAS_HEIGHT;
 import static packagefx.InterfaceFX.CANVAS_WIDTH;
 import static packagefx.InterfaceFX.HGAP_DEFAULT;
+import static packagefx.InterfaceFX.SCENE_HEIGHT;
 import static packagefx.InterfaceFX.VGAP_DEFAULT;
 
 /**
@@ -48,14 +48,22 @@ public class IGSData extends AbstractData
     
     private TextField rTF, aTF;
     private Label rLabel, aLabel;
+    private Slider stepSlider;                  //jumps straight to any step of the current run
+    private Label stepLabel;
     
     private NumberAxis xAxis, yAxis;
     private ScatterChart<Number,Number> scatterChart;
     private XYChart.Series<Number,Number> series;
-    private XYChart.Data[] scatterDataArray;
+    private SeriesWindowFeed feed;              //downsampled, windowed view of sumArray
+    private XYChart.Series<Number,Number> accelSeries;
+    private SeriesWindowFeed accelFeed;         //downsampled, windowed view of accelArray
+    private CanvasPlot plot;                    //draws sumArray and accelArray directly, when useCanvasPlot is set
+    private int sumPlot, accelPlot;             //series of the plot
     
     // animation
     private final int ANIMATION_DURATION = 1000;
+    private final double STEP_DURATION = 2 * ANIMATION_DURATION / 1000.0;  //seconds shown per step
+    private final double SWEEP_FRACTION = 0.5;          //part of a step used to sweep to the new sum
     private final double ANIMATION_SCALE_INCREASE = 0.25;
     private final int INT_CIRCLE_RADIUS = 80;
     private final int DEC_CIRCLE_RADIUS = 60;
@@ -63,6 +71,7 @@ public class IGSData extends AbstractData
     private Arc decArc;
     private Pane animPane;
     private Text intText, decText, nText;
+    private Text exactText;                     //exact fraction of the current partial sum
     
     // END USER INTERFACE FIELDS ///////////////////////////////////////////////
     
@@ -71,18 +80,25 @@ public class IGSData extends AbstractData
     final private double MAX_R_VALUE = 1.0;
     final private double DEFAULT_R_VALUE = 0.5;
     final private int DEFAULT_A_VALUE = 2;
-    final private int NUM_STEPS = 6;
+    final private int NUM_STEPS = 6;                    //maximum number of steps animated
     
     private DoubleProperty rValue;
     private DoubleProperty aValue;
-    private DoubleBinding result; // = aValue.divide(rValue.negate().add(1)); 
-    private double[] sumArray;
+    private DoubleBinding result; // = aValue / (1 - rValue)
+    private final IGSModel model;               //headless model computing result and the partial sums
+    private double[] sumArray;                  //partial sums of the current run, owned by the model
+    private double[] nArray;                    //x value (n) of each partial sum in sumArray
+    private double[] accelArray;                //accelerated estimate of the limit after each partial sum
+    
+    // exact rational mode, used whenever both text fields hold an exact value (i.e. 2/3 or 0.25)
+    private final RationalStringConverter rationalConverter = new RationalStringConverter();
+    private int stepCount;                      //number of terms actually used by the current run
     
     private int nCounter;
     private int integer;
-    private int prevInteger;
     private double decimal;
-    private double prevDecimal;
+    
+    private StepSimulation stepSimulation;      //created once, reused by every run
     
     private boolean firstRun;                   //boolean used to determine if start() method was run
     
@@ -93,8 +109,10 @@ public class IGSData extends AbstractData
     {
         rValue = new SimpleDoubleProperty(DEFAULT_R_VALUE);
         aValue = new SimpleDoubleProperty(DEFAULT_A_VALUE);
-        result = aValue.divide(rValue.negate().add(1));
-        sumArray = new double[NUM_STEPS];
+        model = new IGSModel(aValue.get(), rValue.get());
+        GraphDoubleBinding.feed(model.getGraph(), model.getANode(), aValue);
+        GraphDoubleBinding.feed(model.getGraph(), model.getRNode(), rValue);
+        result = new GraphDoubleBinding(model.getGraph(), model.getLimitNode());
         firstRun = true;
         
         rValue.addListener(new ChangeListener()
@@ -130,16 +148,55 @@ public class IGSData extends AbstractData
         toggleControlPane.setVgap(VGAP_DEFAULT);
         
         rTF = new TextField();
-        Bindings.bindBidirectional(rTF.textProperty(), rValue, converter);
+        Bindings.bindBidirectional(rTF.textProperty(), rValue, rationalConverter);
         rTF.setPromptText("enter value between -1 and 1 (i.e. 2/3)");
         aTF = new TextField();
-        Bindings.bindBidirectional(aTF.textProperty(), aValue, converter);
+        Bindings.bindBidirectional(aTF.textProperty(), aValue, rationalConverter);
         aTF.setPromptText("enter value of first term");
+        model.setExactR(Rational.tryParse(rTF.getText()));
+        model.setExactA(Rational.tryParse(aTF.getText()));
+        
+        //keep the exact value typed by the user, the bound DoubleProperty only holds its approximation
+        rTF.textProperty().addListener(new ChangeListener<String>()
+        {
+            @Override
+            public void changed(ObservableValue<? extends String> o, String oldVal, String newVal)
+            {
+                model.setExactR(Rational.tryParse(newVal));
+            }
+        });
+        aTF.textProperty().addListener(new ChangeListener<String>()
+        {
+            @Override
+            public void changed(ObservableValue<? extends String> o, String oldVal, String newVal)
+            {
+                model.setExactA(Rational.tryParse(newVal));
+            }
+        });
         rLabel = new Label("r = ");
         aLabel = new Label("a = ");
+        
+        //seek to the step chosen by the user, disabled until a run has been started
+        stepSlider = new Slider(0, NUM_STEPS, 0);
+        stepSlider.setMajorTickUnit(1.0);
+        stepSlider.setMinorTickCount(0);
+        stepSlider.setSnapToTicks(true);
+        stepSlider.setDisable(true);
+        stepLabel = new Label("n = ");
+        stepSlider.valueProperty().addListener(new ChangeListener<Number>()
+        {
+            @Override
+            public void changed(ObservableValue<? extends Number> o, Number oldVal, Number newVal)
+            {
+                int n = (int)Math.round(newVal.doubleValue());
+                if(n != nCounter)
+                    seek(n);
+            }
+        });
 
         toggleControlPane.addRow(0, rLabel, rTF);
         toggleControlPane.addRow(1, aLabel, aTF);
+        toggleControlPane.addRow(2, stepLabel, stepSlider);
         
         return toggleControlPane;
     }
@@ -148,8 +205,20 @@ public class IGSData extends AbstractData
      * Builds and return primary chart.
      * @return 
      */
-    protected Chart buildChart1()
+    protected Node buildChart1()
     {
+        if(useCanvasPlot)
+        {
+            plot = new CanvasPlot();
+            plot.setXLabel("n");
+            plot.setYLabel("value");
+            plot.setXRange(0, NUM_STEPS + 1, false);
+            plot.setYRange(0, 5, false);
+            sumPlot = plot.addSeries(null, CanvasPlot.Mode.SCATTER, Color.ORANGE);
+            accelPlot = plot.addSeries(null, CanvasPlot.Mode.SCATTER, Color.STEELBLUE);
+            return plot;
+        }
+
         // setup chart
         xAxis = new NumberAxis();
         xAxis.setLabel("n");
@@ -171,14 +240,22 @@ public class IGSData extends AbstractData
         series = new XYChart.Series();
         scatterChart.setLegendVisible(false);
         
-        scatterDataArray = new XYChart.Data[NUM_STEPS];
-        
         // Following block of code's purpose is to add data to series before
         // adding series to the scatterChart. (999, 999) is irrelevant and removed
-        scatterDataArray[0] = new XYChart.Data(999, 999);
-        series.getData().add(scatterDataArray[0]);
+        XYChart.Data placeholder = new XYChart.Data(999, 999);
+        series.getData().add(placeholder);
         scatterChart.getData().add(series);
-        series.getData().remove(scatterDataArray[0]);
+        series.getData().remove(placeholder);
+        
+        //second series holding the accelerated estimates, drawn next to the partial sums
+        accelSeries = new XYChart.Series();
+        XYChart.Data accelPlaceholder = new XYChart.Data(999, 999);
+        accelSeries.getData().add(accelPlaceholder);
+        scatterChart.getData().add(accelSeries);
+        accelSeries.getData().remove(accelPlaceholder);
+        
+        feed = new SeriesWindowFeed(series, xAxis);
+        accelFeed = new SeriesWindowFeed(accelSeries, xAxis);
             
         return scatterChart; 
     }
@@ -190,10 +267,11 @@ public class IGSData extends AbstractData
     protected Node buildChart2()
     {
         Pane imagePane = new Pane();
-        Image igsFormula = new Image("file:formulaIGS.png");
+        //the formula is displayed at half the chart height, at most half the scene height
+        Image igsFormula = ImageCache.getShared().get("file:formulaIGS.png", SCENE_HEIGHT/2, 0);
         ImageView iv = new ImageView(igsFormula);
         iv.setPreserveRatio(true);
-        iv.fitWidthProperty().bind(scatterChart.heightProperty().divide(2));
+        iv.fitWidthProperty().bind((useCanvasPlot ? plot : scatterChart).heightProperty().divide(2));
         iv.setX(imagePane.getWidth()/3);
         imagePane.getChildren().add(iv);
         
@@ -245,24 +323,25 @@ public class IGSData extends AbstractData
         if(!(firstRun))
         {
             //clear data from scatterChart
-            scatterChart.setAnimated(false);
-            series.getData().clear();
-            scatterChart.getData().remove(series);
-            scatterChart.setAnimated(true);  
+            if(useCanvasPlot)
+                showPoints(0);
+            else
+            {
+                scatterChart.setAnimated(false);
+                feed.clear();
+                accelFeed.clear();
+                scatterChart.getData().remove(series);
+                scatterChart.getData().remove(accelSeries);
+                scatterChart.setAnimated(true);  
+            }
+            
+            //stop the clock and jump straight back to the initial state
+            stopClock();
+            seek(0);
+            stepSlider.setDisable(true);
             
             //remove nText from animPane
             animPane.getChildren().remove(nText);
-            
-            //reset all animations to defaults (effectively fast forwards animation until end)
-            animation.setRate(999999999);
-            
-            //reset intText and decText
-            intText.setText(Integer.toString(0));
-            decText.setText(Double.toString(0.00));
-            //reset decArc and intCircle to default
-            decArc.setLength(0);
-            intCircle.setRadius(INT_CIRCLE_RADIUS);
-
         }
         nCounter = 0;
         rValue.setValue(DEFAULT_R_VALUE);
@@ -285,8 +364,10 @@ public class IGSData extends AbstractData
         //enable the pause button
         actionButtonArray[1].setDisable(false);
         
-        //call geometricRecursive to fill sumArray with corresponding data
-        geometricRecursive(aValue.doubleValue(), rValue.doubleValue(), NUM_STEPS);
+        //compensated sums, only keeping the steps that still change the result, exact when a and r are
+        stepCount = model.run(NUM_STEPS);
+        sumArray = model.getSums();
+        accelArray = model.getAccelerated();
         
         // determines if this is first time the start() method is called
         // if true, add create, bind and add nLabel
@@ -307,18 +388,31 @@ public class IGSData extends AbstractData
             decText.setY(decCircle.getCenterY());
             decText.setTextOrigin(VPos.CENTER);
             decText.setFont(new Font("helvetica", 15));
+            exactText = new Text();
+            exactText.setX(intCircle.getCenterX() - intCircle.getRadius());
+            exactText.setY(CANVAS_HEIGHT - 20);
+            exactText.setFont(new Font("helvetica", 15));
 
-            animPane.getChildren().addAll(nText, intText, decText);
+            animPane.getChildren().addAll(nText, intText, decText, exactText);
         }
         else
         {
             //clear all data from scatterChart
-            scatterChart.setAnimated(false);
-            series.getData().clear();
-            scatterChart.getData().remove(series);
-            series.getData().add(new XYChart.Data(-1, -1));
-            scatterChart.setAnimated(true);
-            scatterChart.getData().add(series);
+            if(useCanvasPlot)
+                showPoints(0);
+            else
+            {
+                scatterChart.setAnimated(false);
+                feed.clear();
+                accelFeed.clear();
+                scatterChart.getData().remove(series);
+                scatterChart.getData().remove(accelSeries);
+                series.getData().add(new XYChart.Data(-1, -1));
+                accelSeries.getData().add(new XYChart.Data(-1, -1));
+                scatterChart.setAnimated(true);
+                scatterChart.getData().add(series);
+                scatterChart.getData().add(accelSeries);
+            }
             
             //reset integer and decimal to 0
             integer = 0;
@@ -326,118 +420,216 @@ public class IGSData extends AbstractData
             
             //reset nText and add it to animPane
             nText.setText("n = " + Integer.toString(nCounter));
-            animPane.getChildren().add(nText);
+            showNText();
             
             //reset intText and decText
             intText.setText(Integer.toString((int)Math.floor(sumArray[0])));
             decText.setText(Double.toString(sumArray[0] - (double)Math.floor(sumArray[0])));
         }
         firstRun = false;
-        yAxis.setTickUnit((result.doubleValue() + 0.05*result.doubleValue()) / 10.0);
-        yAxis.setUpperBound(result.doubleValue() + 0.05*result.doubleValue());
+        fillStepPositions(stepCount);
+        if(useCanvasPlot)
+        {
+            plot.setXRange(0, stepCount + 1, false);
+            plot.setYRange(0, result.doubleValue() + 0.05*result.doubleValue(), false);
+        }
+        else
+        {
+            xAxis.setUpperBound(stepCount + 1);
+            xAxis.setTickUnit(Math.max(1, Math.ceil((stepCount + 1) / 10.0)));
+            yAxis.setTickUnit((result.doubleValue() + 0.05*result.doubleValue()) / 10.0);
+            yAxis.setUpperBound(result.doubleValue() + 0.05*result.doubleValue());
+        }
         
-        SequentialTransition seqTransition = new SequentialTransition();
-        // VERY IMPORTANT LINE
-        animation = seqTransition;
+        //play the run on the clock from its first step
+        if(stepSimulation == null)
+            stepSimulation = new StepSimulation();
+        runClock(stepSimulation);
+        seek(0);
+        stepSlider.setMax(stepCount);
+        stepSlider.setDisable(false);
+    }
+    
+    /**
+     * Shows the data of a new step : chart points, n and the final decimal of the step.
+     * @param step : index of the partial sum in sumArray
+     */
+    private void showStep(int step)
+    {
+        decimal = sumArray[step] - Math.floor(sumArray[step]);
+        decText.setText(String.format("%.2f", decimal));
+        nText.setText("n = " + Integer.toString(step));
+        exactText.setText(getExactSumText(step));
         
-        ParallelTransition[] parTransitionArray = new ParallelTransition[NUM_STEPS];
-        //animation to increase the scale of intCircle
-        ScaleTransition[] scaleTransitionArray = new ScaleTransition[NUM_STEPS];
+        nCounter = step + 1;
+        showPoints(nCounter);
+        stepSlider.setValue(nCounter);
+    }
+    
+    /**
+     * Shows the first count partial sums and accelerated estimates on the chart.
+     * @param count : number of points shown
+     */
+    private void showPoints(int count)
+    {
+        if(useCanvasPlot)
+        {
+            plot.setData(sumPlot, nArray, sumArray, count);
+            plot.setData(accelPlot, nArray, accelArray, count);
+        }
+        else
+        {
+            feed.update(nArray, sumArray, count);
+            accelFeed.update(nArray, accelArray, count);
+        }
+    }
+    
+    /**
+     * Jumps straight to the state reached once n steps of the current run have been shown, using the
+     * precomputed partial sums : nothing is summed again, only the chart is refreshed, in time linear in
+     * the points shown. The clock, running or paused, continues from there, also after a finished run.
+     * @param n : number of steps shown, from 0 (initial state) to stepCount
+     */
+    public void seek(int n)
+    {
+        n = Math.max(0, Math.min(n, stepCount));
+        clock.setTime(n * STEP_DURATION);
+        //a finished run removed nText
+        showNText();
+        if(n == 0)
+        {
+            nCounter = 0;
+            integer = 0;
+            decimal = 0;
+            intText.setText(Integer.toString(0));
+            decText.setText(String.format("%.2f", 0.0));
+            nText.setText("n = " + Integer.toString(0));
+            exactText.setText("");
+            decArc.setLength(0);
+            intCircle.setScaleX(1.0);
+            intCircle.setScaleY(1.0);
+            showPoints(0);
+            stepSlider.setValue(0);
+        }
+        else
+        {
+            showStep(n - 1);
+            renderStep(n - 1, 1.0);
+        }
+    }
+    
+    /**
+     * Adds nText to animPane unless it is already shown.
+     */
+    private void showNText()
+    {
+        if(nText != null && !animPane.getChildren().contains(nText))
+            animPane.getChildren().add(nText);
+    }
+    
+    /**
+     * Draws one frame of a step : the value sweeps from the previous partial sum to the current one,
+     * and intCircle pulses if the integer part increased during the step.
+     * @param step : index of the partial sum in sumArray
+     * @param phase : position within the step, from 0 to 1
+     */
+    private void renderStep(int step, double phase)
+    {
+        double previous = (step == 0) ? 0 : sumArray[step - 1];
+        double current = sumArray[step];
+        double progress = Math.min(1.0, phase / SWEEP_FRACTION);
+        double value = previous + (current - previous) * progress;
         
-        scatterDataArray[0] = new XYChart.Data(0.05, sumArray[0]);
-        series.getData().add(scatterDataArray[0]);
+        int valueInteger = (int)Math.floor(value);
+        if(valueInteger != integer)
+        {
+            integer = valueInteger;
+            intText.setText(Integer.toString(integer));
+        }
+        decArc.setLength((value - Math.floor(value)) * -360.0);
         
-        prevInteger = integer;
-        integer = (int)Math.floor(sumArray[0]);
-        prevDecimal = decimal;
-        decimal = sumArray[0] - Math.floor(sumArray[0]);
-        decArc.setLength(decimal * -360.0);
-        nCounter++;
+        double scale = 1.0;
+        if(Math.floor(current) > Math.floor(previous))
+            scale += ANIMATION_SCALE_INCREASE * Math.sin(Math.PI * phase);
+        intCircle.setScaleX(scale);
+        intCircle.setScaleY(scale);
+    }
+    
+    /**
+     * Draws the end state of the run and halts the clock.
+     */
+    private void finishRun()
+    {
+        if(nCounter < stepCount)
+            showStep(stepCount - 1);
+        renderStep(stepCount - 1, 1.0);
+        clock.halt();
+        nCounter = 0;
+        animPane.getChildren().remove(nText);
+    }
+    
+    /**
+     * Simulation advancing the IGS animation on the clock from the precomputed sumArray, one step
+     * every STEP_DURATION seconds. Steps show the new partial sums, frames draw the sweep in between.
+     */
+    private class StepSimulation implements SimulationClock.Simulation
+    {
+        @Override
+        public void step(double time, double dt)
+        {
+            int step = (int)((time + dt) / STEP_DURATION);
+            if(step >= stepCount)
+                finishRun();
+            else if(step >= nCounter)
+                showStep(step);
+        }
         
-        for(int i = 0; i < NUM_STEPS; i++)
-        {            
-            parTransitionArray[i] = new ParallelTransition();
-            
-            //if integer value has increased after recursive call
-            if(integer > prevInteger)
-            {
-                scaleTransitionArray[i] = new ScaleTransition(Duration.millis(ANIMATION_DURATION), intCircle);
-                scaleTransitionArray[i].setByX(ANIMATION_SCALE_INCREASE);
-                scaleTransitionArray[i].setByY(ANIMATION_SCALE_INCREASE);
-                scaleTransitionArray[i].setCycleCount(2);
-                scaleTransitionArray[i].setAutoReverse(true);
-                parTransitionArray[i].getChildren().add(scaleTransitionArray[i]);
-            }
-            
-            //eventhandler called when each parTransition is finished
-            parTransitionArray[i].setOnFinished(new EventHandler<ActionEvent>() 
-            {
-                @Override
-                public void handle(ActionEvent e) 
-                {
-                    //if there are more steps, increment nCounter and add new data point to scatterChart
-                    if(nCounter < NUM_STEPS)
-                    {
-                        prevInteger = integer;
-                        integer = (int)Math.floor(sumArray[nCounter]);
-                        prevDecimal = decimal;
-                        decimal = sumArray[nCounter] - Math.floor(sumArray[nCounter]);
-                        intText.setText(Integer.toString(integer));
-                        decText.setText(String.format("%.2f", decimal));
-                        decArc.setLength(decimal * -360.0);
-                        
-                        nText.setText("n = " + Integer.toString(nCounter));
-
-                        scatterDataArray[nCounter] = new XYChart.Data(nCounter, sumArray[nCounter]);
-                        series.getData().add(scatterDataArray[nCounter]);
-                        nCounter++;
-
-                    }
-                    //if there are no more steps, remove nText from animPane
-                    else
-                    {
-                        nCounter = 0; //or is it 1?
-                        animPane.getChildren().remove(nText);
-                    }
-                }
-            });
-            seqTransition.getChildren().add(parTransitionArray[i]);
+        @Override
+        public void render(double time, double alpha)
+        {
+            double phase = (time + alpha * clock.getTimeStep()) / STEP_DURATION;
+            int step = Math.min((int)phase, stepCount - 1);
+            if(step >= nCounter)
+                showStep(step);
+            renderStep(step, Math.min(phase - step, 1.0));
         }
-        seqTransition.play();   
     }
     
     // END USER INTERFACE METHODS //////////////////////////////////////////////
     
     // DATA METHODS ////////////////////////////////////////////////////////////
     /**
-     * Calls geometricRecursiveHelper
-     * @param a : first term
-     * @param r : common ratio
-     * @param steps : the number of recursive calls that will be made (n)
-     * @return 
+     * Returns the text displaying the exact partial sum of index i, empty outside exact mode.
+     * @param i : index of the partial sum
+     * @return : "S(n) = p/q"
      */
-    protected double geometricRecursive(double a, double r, int steps)
+    private String getExactSumText(int i)
     {
-        return geometricRecursiveHelper(0, a, r, steps, 0);
+        if(!model.isExactMode())
+            return "";
+        return "S(" + (i + 1) + ") = " + model.getExactSum(i);
     }
     
-    /** 
-     * @param sum : results for each recursive call
-     * @param a : first term
-     * @param r : common ratio
-     * @param steps : the number of recursive calls that will be made (n)
-     * @param counter : index of sumArray[], incremented
-     * @return : sum
+    /**
+     * Fills nArray with the x position of the first count partial sums on the scatterChart.
+     * The first sum is drawn slightly right of the y axis so it remains visible.
+     * @param count : number of partial sums
      */
-    private double geometricRecursiveHelper(double sum, double a, double r, int steps, int counter)
+    private void fillStepPositions(int count)
     {
-        if (steps <= 0)
-            return sum;
-        else
-        {
-            sumArray[counter] = sum + a;
-            return geometricRecursiveHelper(sum + a, a * r, r, steps - 1, counter + 1);   
-        }
+        nArray = GeometricSeries.ensureCapacity(nArray, count);
+        nArray[0] = 0.05;
+        for(int i = 1; i < count; i++)
+            nArray[i] = i;
+    }
+    
+    /**
+     * Sets the tolerance used by the model to stop summing.
+     * @param epsilon : maximum distance between the last partial sum and result
+     */
+    public void setEpsilon(double epsilon)
+    {
+        model.setEpsilon(epsilon);
     }
     
     /**
@@ -445,7 +637,7 @@ public class IGSData extends AbstractData
      */
     private void printSumArray()
     {
-        for (int i = 0; i < NUM_STEPS; i++)
+        for (int i = 0; i < stepCount; i++)
             System.out.println("index " + i + " : " + sumArray[i]);
     }
     
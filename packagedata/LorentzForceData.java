@@ -2,34 +2,49 @@ package packagedata;
 
 import javafx.animation.FadeTransition;
 import javafx.animation.Interpolator;
-import javafx.animation.KeyFrame;
 import javafx.animation.ParallelTransition;
-import javafx.animation.SequentialTransition;
-import javafx.animation.Timeline;
 import javafx.animation.TranslateTransition;
+import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.binding.DoubleBinding;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.concurrent.Task;
+import javafx.concurrent.WorkerStateEvent;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.scene.Node;
-import javafx.scene.chart.Chart;
+import javafx.scene.chart.AreaChart;
 import javafx.scene.chart.LineChart;
 import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.XYChart;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.Slider;
-import javafx.scene.image.Image;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TabPane;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Pane;
+import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
+import javafx.scene.shape.Circle;
 import javafx.scene.shape.Rectangle;
 import javafx.util.Duration;
+import packagefx.ImageCache;
+import packagemodel.DenseTrajectory;
+import packagemodel.LorentzForceModel;
+import packagemodel.RailGunModel;
+import packagemodel.RailGunMonteCarlo;
+import packagemodel.RailGunSweep;
+import packagemodel.SimulationClock;
+import packagemodel.StreamingHistogram;
 import static packagefx.InterfaceFX.CANVAS_HEIGHT;
 import static packagefx.InterfaceFX.CANVAS_WIDTH;
-import static packagefx.InterfaceFX.PERMEABILITY_OF_FREE_SPACE;
 
 /**
  * Interactively demonstrates Lorentz Force through the simplified concept of a Rail Gun.
@@ -56,13 +71,36 @@ public class LorentzForceData extends AbstractData
     private Slider massSlider;
     private Label currentLabel;
     private Label massLabel;
+    private CheckBox lossesCheckBox;
   
     private NumberAxis xAxis, yAxis;
     private LineChart<Number,Number> lineChart;
     private XYChart.Series<Number,Number> series;
+    private SeriesBatchFeed feed;               //reveals the precomputed velocity curve, one batch per pulse
+    private CanvasPlot plot;                    //draws the velocity curve directly, when useCanvasPlot is set
+    private int velocityPlot;                   //series of the plot
+    private double[] curveTimes;                //velocity curve revealed on the plot
+    private int curveShown;                     //number of points of the curve shown on the plot
+    private final int CHART_SAMPLES = 2000;     //points of the velocity curve per run
     
     private Pane animPane;
     private Pane tempPane;
+    private Label infoLabel;
+    private HeatMapView heatMap;
+    private Circle sweepMarker;                 //position of the toggle values on the heat map
+    private ChoiceBox<String> sweepChoice;      //value painted on the heat map
+    private static final String[] SWEEP_VALUE_NAMES = {"Final velocity", "Total time"};
+    private final int SWEEP_WIDTH = 640;        //columns (current) of the sweep grid
+    private final int SWEEP_HEIGHT = 480;       //rows (mass) of the sweep grid
+    private final double HEAT_MAP_WIDTH = 320;  //displayed size, in pixels
+    private final double HEAT_MAP_HEIGHT = 240;
+    
+    private AreaChart<Number,Number> monteCarloChart;
+    private NumberAxis monteCarloAxis;
+    private XYChart.Series<Number,Number> velocityHistogram;
+    private XYChart.Series<Number,Number> timeHistogram;
+    private Label monteCarloLabel;
+    private Button monteCarloButton;
     private Rectangle armature;
     private ImageView projectile;
     private Rectangle upperRail;
@@ -70,8 +108,6 @@ public class LorentzForceData extends AbstractData
     
     // DATA FIELDS /////////////////////////////////////////////////////////////
     
-    private double DISTANCE_BETWEEN_RODS = 1.0;     // in meters
-    private double RADIUS_OF_ROD = 0.1;            // in meters
     private DoubleProperty current;             // in amps
     private DoubleProperty mass;          //in kg
     
@@ -79,8 +115,15 @@ public class LorentzForceData extends AbstractData
     private DoubleBinding totalTime;           // in seconds
     private DoubleBinding acceleration;         // in m/s^2
     private DoubleBinding finalVelocity;            // in m/s
+    private final LorentzForceModel model;      //headless model computing the four bindings above
+    
+    private RailGunSweep sweep;                 //final velocity over the current x mass range of the sliders
     
-    private int cycleCount;                     // counter used for timeline animation
+    private final long MONTE_CARLO_SAMPLES = 10000000L;
+    private RailGunMonteCarlo monteCarlo;
+    private Thread monteCarloWorker;
+    private FrameScheduler monteCarloScheduler;       //refreshes the histograms every frame while sampling
+    private long[] velocityCounts, timeCounts;
         
     private boolean firstRun;               //boolean used to see if start() method was called
     // END DATA FIELDS /////////////////////////////////////////////////////////
@@ -91,37 +134,13 @@ public class LorentzForceData extends AbstractData
         mass = new SimpleDoubleProperty(DEFAULT_VALUE_MASS);
         firstRun = true;
         
-        force = new DoubleBinding() 
-        {
-            {
-                    super.bind(current);
-            }
- 
-            @Override
-            protected double computeValue() // F = ((u0)(I^2)ln(d/r)) / 2PI
-            {  
-                return ((PERMEABILITY_OF_FREE_SPACE * current.doubleValue() * current.doubleValue())
-                        * (Math.log(DISTANCE_BETWEEN_RODS / RADIUS_OF_ROD)) 
-                        / (2 * Math.PI));
-            }
-        };
-        
-        totalTime = new DoubleBinding()
-        {
-            {
-                super.bind(force);
-            }
-            
-            @Override
-            public double computeValue() // totalTime = sqrt((2d) / a)
-            {
-                return Math.pow((2*DISTANCE_BETWEEN_RODS / acceleration.doubleValue()), 0.5);
-            }
-        };
-        
-        acceleration = force.divide(mass);
-        
-        finalVelocity = acceleration.multiply(totalTime);
+        model = new LorentzForceModel(current.doubleValue(), mass.doubleValue());
+        GraphDoubleBinding.feed(model.getGraph(), model.getCurrentNode(), current);
+        GraphDoubleBinding.feed(model.getGraph(), model.getMassNode(), mass);
+        force = new GraphDoubleBinding(model.getGraph(), model.getForceNode());
+        acceleration = new GraphDoubleBinding(model.getGraph(), model.getAccelerationNode());
+        totalTime = new GraphDoubleBinding(model.getGraph(), model.getTotalTimeNode());
+        finalVelocity = new GraphDoubleBinding(model.getGraph(), model.getFinalVelocityNode());
     }
     
     /**
@@ -157,6 +176,9 @@ public class LorentzForceData extends AbstractData
         toggleControlPane.addRow(0, currentLabel, currentSlider);
         toggleControlPane.addRow(1, massLabel, massSlider);
         
+        lossesCheckBox = new CheckBox("Friction, drag and rail resistance");
+        toggleControlPane.add(lossesCheckBox, 1, 2);
+        
         return toggleControlPane;
     }
     
@@ -164,8 +186,19 @@ public class LorentzForceData extends AbstractData
      * Builds and return primary chart.
      * @return 
      */
-    protected Chart buildChart1()
+    protected Node buildChart1()
     {
+        if(useCanvasPlot)
+        {
+            plot = new CanvasPlot();
+            plot.setXLabel("time (s)");
+            plot.setYLabel("velocity (m/s)");
+            plot.setXRange(0, 5, false);
+            plot.setYRange(0, 5, false);
+            velocityPlot = plot.addSeries(null, CanvasPlot.Mode.LINE, Color.ORANGERED);
+            return plot;
+        }
+
         // setup chart
         xAxis = new NumberAxis();
         xAxis.setLabel("time (s)");
@@ -188,6 +221,9 @@ public class LorentzForceData extends AbstractData
         lineChart.setLegendVisible(false);
         lineChart.getData().add(series);
         lineChart.setCreateSymbols(false);
+        //the curve is revealed by the animation itself, animating every added point would cost one timeline each
+        lineChart.setAnimated(false);
+        feed = new SeriesBatchFeed(series);
             
         return lineChart; 
     }
@@ -198,8 +234,241 @@ public class LorentzForceData extends AbstractData
      */
     protected Node buildChart2()
     {
-        tempPane = new Pane();
-        return tempPane;
+        heatMap = new HeatMapView(SWEEP_WIDTH, SWEEP_HEIGHT);
+        heatMap.setFitWidth(HEAT_MAP_WIDTH);
+        heatMap.setFitHeight(HEAT_MAP_HEIGHT);
+        heatMap.setSmooth(true);
+        
+        sweepMarker = new Circle(4, Color.WHITE);
+        sweepMarker.setStroke(Color.BLACK);
+        ChangeListener<Number> markerListener = new ChangeListener<Number>()
+        {
+            @Override
+            public void changed(ObservableValue<? extends Number> observable, Number oldValue, Number newValue)
+            {
+                placeSweepMarker();
+            }
+        };
+        current.addListener(markerListener);
+        mass.addListener(markerListener);
+        placeSweepMarker();
+        
+        Pane mapPane = new Pane(heatMap, sweepMarker);
+        mapPane.setPrefSize(HEAT_MAP_WIDTH, HEAT_MAP_HEIGHT);
+        sweepChoice = new ChoiceBox<String>();
+        sweepChoice.getItems().addAll(SWEEP_VALUE_NAMES);
+        sweepChoice.getSelectionModel().select(0);
+        sweepChoice.getSelectionModel().selectedIndexProperty().addListener(new ChangeListener<Number>()
+        {
+            @Override
+            public void changed(ObservableValue<? extends Number> observable, Number oldValue, Number newValue)
+            {
+                paintSweep(0, 0, SWEEP_WIDTH, SWEEP_HEIGHT);
+            }
+        });
+        Label mapLabel = new Label("Current " + MIN_VALUE_CURRENT + " to " + MAX_VALUE_CURRENT
+                + " A (left to right), mass " + MAX_VALUE_MASS + " to " + MIN_VALUE_MASS + " kg (top to bottom)");
+        mapLabel.setWrapText(true);
+        mapLabel.setMaxWidth(HEAT_MAP_WIDTH);
+        infoLabel = new Label();
+        
+        tempPane = new VBox(5, sweepChoice, mapLabel, mapPane, infoLabel);
+        runSweep();
+        
+        TabPane tabPane = new TabPane();
+        tabPane.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
+        tabPane.getTabs().addAll(new Tab("Sweep", tempPane), new Tab("Tolerances", buildMonteCarloPane()));
+        return tabPane;
+    }
+    
+    /**
+     * Builds the Monte Carlo pane : histograms of final velocity and total time relative to their
+     * nominal value, percentiles, and the button starting the sampling.
+     * @return : pane
+     */
+    private Node buildMonteCarloPane()
+    {
+        monteCarloAxis = new NumberAxis();
+        monteCarloAxis.setLabel("value / nominal value");
+        monteCarloAxis.setAutoRanging(false);
+        monteCarloAxis.setAnimated(false);
+        NumberAxis countAxis = new NumberAxis();
+        countAxis.setLabel("fraction of samples");
+        countAxis.setAnimated(false);
+        
+        monteCarloChart = new AreaChart<Number,Number>(monteCarloAxis, countAxis);
+        monteCarloChart.setAnimated(false);
+        monteCarloChart.setCreateSymbols(false);
+        monteCarloChart.setPrefSize(HEAT_MAP_WIDTH, HEAT_MAP_HEIGHT);
+        velocityHistogram = new XYChart.Series<Number,Number>();
+        velocityHistogram.setName("final velocity");
+        timeHistogram = new XYChart.Series<Number,Number>();
+        timeHistogram.setName("total time");
+        monteCarloChart.getData().addAll(velocityHistogram, timeHistogram);
+        
+        velocityCounts = new long[RailGunMonteCarlo.BINS];
+        timeCounts = new long[RailGunMonteCarlo.BINS];
+        monteCarloLabel = new Label();
+        monteCarloButton = new Button("Sample " + MONTE_CARLO_SAMPLES + " tolerances");
+        monteCarloButton.setOnAction(new EventHandler<ActionEvent>()
+        {
+            @Override
+            public void handle(ActionEvent e)
+            {
+                runMonteCarlo();
+            }
+        });
+        monteCarloScheduler = new FrameScheduler()
+        {
+            @Override
+            protected void update(double elapsed, double delta)
+            {
+                boolean done = !monteCarloWorker.isAlive();
+                showMonteCarlo();
+                if(done)
+                {
+                    pause();
+                    monteCarloButton.setDisable(false);
+                }
+            }
+        };
+        
+        return new VBox(5, monteCarloChart, monteCarloLabel, monteCarloButton);
+    }
+    
+    /**
+     * Samples the tolerances around the toggle values on every core, the histograms are refreshed
+     * every frame until the workers are done.
+     */
+    private void runMonteCarlo()
+    {
+        monteCarloButton.setDisable(true);
+        monteCarlo = model.createMonteCarlo();
+        
+        StreamingHistogram histogram = monteCarlo.getVelocities();
+        monteCarloAxis.setLowerBound(histogram.getBinStart(0));
+        monteCarloAxis.setUpperBound(histogram.getBinStart(histogram.getBinCount()));
+        monteCarloAxis.setTickUnit((monteCarloAxis.getUpperBound() - monteCarloAxis.getLowerBound()) / 8);
+        fillHistogram(velocityHistogram, histogram);
+        fillHistogram(timeHistogram, monteCarlo.getTimes());
+        
+        final RailGunMonteCarlo sampler = monteCarlo;
+        final long seed = random.nextLong();
+        monteCarloWorker = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                sampler.run(MONTE_CARLO_SAMPLES, seed);
+            }
+        }, "monte carlo");
+        monteCarloWorker.setDaemon(true);
+        monteCarloWorker.start();
+        monteCarloScheduler.restart();
+    }
+    
+    /**
+     * Replaces the points of a histogram series with one point per bin centre, all at zero.
+     * @param histogramSeries : series
+     * @param histogram : histogram giving the bins
+     */
+    private void fillHistogram(XYChart.Series<Number,Number> histogramSeries, StreamingHistogram histogram)
+    {
+        histogramSeries.getData().clear();
+        for(int i = 0; i < histogram.getBinCount(); i++)
+        {
+            histogramSeries.getData().add(new XYChart.Data<Number,Number>(
+                    histogram.getBinStart(i) + histogram.getBinWidth() / 2, 0));
+        }
+    }
+    
+    /**
+     * Copies the current counts of the Monte Carlo histograms to the chart and updates the percentiles.
+     */
+    private void showMonteCarlo()
+    {
+        StreamingHistogram velocities = monteCarlo.getVelocities();
+        StreamingHistogram times = monteCarlo.getTimes();
+        long total = velocities.snapshot(velocityCounts);
+        times.snapshot(timeCounts);
+        if(total == 0)
+            return;
+        
+        for(int i = 0; i < velocityCounts.length; i++)
+        {
+            velocityHistogram.getData().get(i).setYValue((double)velocityCounts[i] / total);
+            timeHistogram.getData().get(i).setYValue((double)timeCounts[i] / total);
+        }
+        
+        double v = monteCarlo.getNominalVelocity();
+        double t = monteCarlo.getNominalTime();
+        monteCarloLabel.setText(String.format("Samples : %d%n"
+                + "Final Velocity (5%% / 50%% / 95%%) : %.1f / %.1f / %.1f m/s%n"
+                + "Total Time (5%% / 50%% / 95%%) : %.4f / %.4f / %.4f s", total,
+                v * velocities.percentile(velocityCounts, total, 0.05),
+                v * velocities.percentile(velocityCounts, total, 0.5),
+                v * velocities.percentile(velocityCounts, total, 0.95),
+                t * times.percentile(timeCounts, total, 0.05),
+                t * times.percentile(timeCounts, total, 0.5),
+                t * times.percentile(timeCounts, total, 0.95)));
+    }
+    
+    /**
+     * Computes the loss free final velocity and total time over the whole current x mass range. A coarse
+     * map is painted at once and each full resolution tile is painted as soon as a worker thread finishes it.
+     */
+    private void runSweep()
+    {
+        sweep = model.createSweep(SWEEP_WIDTH, SWEEP_HEIGHT, MIN_VALUE_CURRENT, MAX_VALUE_CURRENT,
+                MIN_VALUE_MASS, MAX_VALUE_MASS);
+        sweep.run(new RailGunSweep.TileListener()
+        {
+            @Override
+            public void tileCompleted(final int x, final int y, final int tileWidth, final int tileHeight)
+            {
+                if(Platform.isFxApplicationThread())
+                    paintSweep(x, y, tileWidth, tileHeight);
+                else
+                {
+                    Platform.runLater(new Runnable()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            paintSweep(x, y, tileWidth, tileHeight);
+                        }
+                    });
+                }
+            }
+        });
+    }
+    
+    /**
+     * Paints a region of the heat map with the value selected by sweepChoice, scaled between its
+     * lowest and highest value over the grid.
+     * @param x : left column
+     * @param y : top row
+     * @param regionWidth : columns
+     * @param regionHeight : rows
+     */
+    private void paintSweep(int x, int y, int regionWidth, int regionHeight)
+    {
+        if(sweepChoice.getSelectionModel().getSelectedIndex() == 1)
+            heatMap.paintRegion(sweep.getTimes(), x, y, regionWidth, regionHeight, sweep.getMinTime(), sweep.getMaxTime());
+        else
+            heatMap.paintRegion(sweep.getVelocities(), x, y, regionWidth, regionHeight, sweep.getMinVelocity(),
+                    sweep.getMaxVelocity());
+    }
+    
+    /**
+     * Moves the marker of the heat map to the current toggle values.
+     */
+    private void placeSweepMarker()
+    {
+        double x = (current.doubleValue() - MIN_VALUE_CURRENT) / (MAX_VALUE_CURRENT - MIN_VALUE_CURRENT);
+        double y = (MAX_VALUE_MASS - mass.doubleValue()) / (MAX_VALUE_MASS - MIN_VALUE_MASS);
+        sweepMarker.setCenterX(x * HEAT_MAP_WIDTH);
+        sweepMarker.setCenterY(y * HEAT_MAP_HEIGHT);
     }
     
     /**
@@ -231,7 +500,7 @@ public class LorentzForceData extends AbstractData
         
         //create the projectile (iPad)
         projectile = new ImageView();
-        projectile.setImage(new Image("file:src/images/iPad.png", true));
+        projectile.setImage(ImageCache.getShared().get("file:src/images/iPad.png", railSep*0.6, railSep*0.6));
         projectile.setPreserveRatio(true);
         projectile.setSmooth(true);
         projectile.setCache(true);
@@ -248,6 +517,21 @@ public class LorentzForceData extends AbstractData
         return animPane;   
     }
     
+    /**
+     * Stops the sweep and Monte Carlo workers and their refresh, then the animation.
+     */
+    @Override
+    public void dispose()
+    {
+        if(sweep != null)
+            sweep.cancel();
+        if(monteCarlo != null)
+            monteCarlo.cancel();
+        if(monteCarloScheduler != null)
+            monteCarloScheduler.cancel();
+        super.dispose();
+    }
+    
     /**
     * Resets all toggle controls to default values.
     */
@@ -255,7 +539,9 @@ public class LorentzForceData extends AbstractData
     {
         if(!(firstRun))
         {
-            animation.stop();
+            stopClock();
+            if(animation != null)
+                animation.stop();
             FadeTransition ft = new FadeTransition(Duration.millis(1000), projectile);
             ft.setToValue(1.0);
             TranslateTransition projTT = new TranslateTransition(Duration.millis(1000), projectile);
@@ -265,10 +551,13 @@ public class LorentzForceData extends AbstractData
             ParallelTransition parT = new ParallelTransition(ft, projTT, armTT);
             parT.play();
         
-            lineChart.setAnimated(false);
-            series.getData().clear();
-            lineChart.getData().remove(series);
-            lineChart.setAnimated(true);
+            if(useCanvasPlot)
+                plot.setCount(velocityPlot, 0);
+            else
+            {
+                series.getData().clear();
+                lineChart.getData().remove(series);
+            }
         }
         
         current.setValue(DEFAULT_VALUE_CURRENT);
@@ -282,70 +571,101 @@ public class LorentzForceData extends AbstractData
     }
     
     /**
-    * Starts the LorentzForceData animation.
+    * Starts the LorentzForceData animation. The equations of motion are integrated on a worker
+    * thread, the animation is built and played once the trajectory is ready.
     */
     protected void start()
     {
-        //disable the start button
+        //disable the start button, the pause button is enabled once the animation plays
         actionButtonArray[0].setDisable(true);
+        
+        model.setLosses(lossesCheckBox.isSelected());
+        final RailGunModel railGun = model.buildRailGunModel();
+        final Task<DenseTrajectory> integration = new Task<DenseTrajectory>()
+        {
+            @Override
+            protected DenseTrajectory call()
+            {
+                return LorentzForceModel.integrate(railGun);
+            }
+        };
+        integration.setOnSucceeded(new EventHandler<WorkerStateEvent>()
+        {
+            @Override
+            public void handle(WorkerStateEvent e)
+            {
+                playTrajectory(integration.getValue());
+            }
+        });
+        integration.setOnFailed(new EventHandler<WorkerStateEvent>()
+        {
+            @Override
+            public void handle(WorkerStateEvent e)
+            {
+                infoLabel.setText("Integration failed : " + integration.getException().getMessage());
+                actionButtonArray[0].setDisable(false);
+            }
+        });
+        Thread worker = new Thread(integration, "rail gun integrator");
+        worker.setDaemon(true);
+        worker.start();
+    }
+    
+    /**
+     * Plays the animation and the velocity chart of a computed trajectory.
+     * @param trajectory : state {x, v} of the armature over time
+     */
+    private void playTrajectory(DenseTrajectory trajectory)
+    {
         //enable the pause button
         actionButtonArray[1].setDisable(false);
         
-        if(!(firstRun))
+        if(!(firstRun) && !useCanvasPlot)
         {
-            lineChart.setAnimated(false);
             series.getData().clear();
             lineChart.getData().remove(series);
-            lineChart.setAnimated(true);
             lineChart.getData().add(series);
         }
         firstRun = false;
-        cycleCount = 1;
+        
+        double[] state = new double[trajectory.getDimension()];
+        trajectory.sample(trajectory.getEndTime(), state);
+        double endTime = trajectory.getEndTime();
+        double endVelocity = state[1];
+        double maxVelocity = endVelocity;
+        for(int k = 0; k <= trajectory.getStepCount(); k++)
+            maxVelocity = Math.max(maxVelocity, trajectory.getState(k, 1));
 
-        tempPane.getChildren().add(new Label("Total Time : " + Double.toString(totalTime.doubleValue()) + 
-                "\n Final Velocity : " + Double.toString(finalVelocity.doubleValue())));
+        infoLabel.setText("Total Time : " + Double.toString(endTime) + 
+                "\n Final Velocity : " + Double.toString(endVelocity));
         
         // set lineChart values for xAxis and yAxis
-        xAxis.setTickUnit((totalTime.doubleValue() + 0.05*totalTime.doubleValue()) / 5);
-        xAxis.setUpperBound(totalTime.doubleValue() + 0.05*totalTime.doubleValue());
-        yAxis.setTickUnit((finalVelocity.doubleValue() + 0.05*finalVelocity.doubleValue()) / 8.0);
-        yAxis.setUpperBound(finalVelocity.doubleValue() + 0.05*finalVelocity.doubleValue());
-        
-        ParallelTransition parTransition = new ParallelTransition();
-        // VERY IMPORTANT LINE
-        animation = parTransition;
+        if(useCanvasPlot)
+        {
+            plot.setXRange(0, endTime + 0.05*endTime, false);
+            plot.setYRange(0, maxVelocity + 0.05*maxVelocity, false);
+        }
+        else
+        {
+            xAxis.setTickUnit((endTime + 0.05*endTime) / 5);
+            xAxis.setUpperBound(endTime + 0.05*endTime);
+            yAxis.setTickUnit((maxVelocity + 0.05*maxVelocity) / 8.0);
+            yAxis.setUpperBound(maxVelocity + 0.05*maxVelocity);
+        }
         
         //populating the series with data
-        series.getData().add(new XYChart.Data(0, 0));
-        
-        //timeline for the chart
-        Timeline chartTimeline = new Timeline();
-        
-        //totalCycleCount dictates how many line iterations will be added to the lineChart
-        final int totalCycleCount = 100;
-        chartTimeline.getKeyFrames().add(new KeyFrame(Duration.millis(ANIMATION_DURATION / totalCycleCount), //ANIMATION_DURATION / totalCycleCount
-            new EventHandler<ActionEvent>() 
-            {
-                @Override 
-                public void handle(ActionEvent actionEvent) 
-                {   
-                    series.getData().add(new XYChart.Data((cycleCount*(totalTime.doubleValue()/totalCycleCount)), 
-                            ((cycleCount*(totalTime.doubleValue()/totalCycleCount)*acceleration.doubleValue()))));
-                    ++cycleCount;
-                }
-            }));
-        chartTimeline.setCycleCount(totalCycleCount);
-        
-        //Translation for the armature
-        TranslateTransition armTranslation = new TranslateTransition(Duration.millis(ANIMATION_DURATION), armature);
-        armTranslation.setToX(upperRail.getX() + upperRail.getWidth() - armature.getX());
-        armTranslation.setInterpolator(Interpolator.EASE_IN);
-        
-        //Translation (part 1) for the projectile, synchronous to armature's translation
-        TranslateTransition projTranslation1 = new TranslateTransition(Duration.millis(ANIMATION_DURATION), projectile);
-        projTranslation1.setToX(upperRail.getX() + upperRail.getWidth() - armature.getX());
-        projTranslation1.setInterpolator(Interpolator.EASE_IN);
+        loadVelocityCurve(trajectory);
         
+        //moves armature and projectile along the trajectory on the clock and reveals the chart every frame
+        runClock(new RunSimulation(trajectory));
+    }
+    
+    /**
+     * Plays the end of a run : the projectile leaves the rails and fades, then armature and projectile
+     * return to their starting position.
+     */
+    private void launchProjectile()
+    {
         //Translation (part 2) for the projectile, happens in parallel with FadeTransition
         TranslateTransition projTranslation2 = new TranslateTransition(Duration.millis(1000), projectile);
         projTranslation2.setByX(50);
@@ -358,16 +678,10 @@ public class LorentzForceData extends AbstractData
         //ParallelTransition to pair both the Fade and part 2 of the projectile Translation
         ParallelTransition projParTransition = new ParallelTransition();
         projParTransition.getChildren().addAll(projTranslation2, fadeTransition);
+        animation = projParTransition;
+        projParTransition.play();
         
-        //SequentialTransition, first being part 1 of projectile translation, followed
-        //by the fade/translation (part 2) of projectile
-        SequentialTransition projSeqTransition = new SequentialTransition();
-        projSeqTransition.getChildren().addAll(projTranslation1, projParTransition);
-        
-        parTransition.getChildren().addAll(chartTimeline, armTranslation, projSeqTransition);
-        parTransition.play();
-        
-        parTransition.setOnFinished(new EventHandler<ActionEvent>() 
+        projParTransition.setOnFinished(new EventHandler<ActionEvent>() 
             {
                 @Override
                 public void handle(ActionEvent e) 
@@ -383,4 +697,103 @@ public class LorentzForceData extends AbstractData
                 }
             });
     }
-}
\ No newline at end of file
+    
+    /**
+     * Samples the velocity of a trajectory at CHART_SAMPLES evenly spaced times and hands the curve
+     * to the feed, the animation then reveals it.
+     * @param trajectory : state {x, v} of the armature over time
+     */
+    private void loadVelocityCurve(DenseTrajectory trajectory)
+    {
+        double[] times = new double[CHART_SAMPLES];
+        double[] velocities = new double[CHART_SAMPLES];
+        double[] state = new double[trajectory.getDimension()];
+        double endTime = trajectory.getEndTime();
+        for(int i = 0; i < CHART_SAMPLES; i++)
+        {
+            times[i] = endTime * i / (CHART_SAMPLES - 1);
+            trajectory.sample(times[i], state);
+            velocities[i] = state[1];
+        }
+        if(useCanvasPlot)
+        {
+            curveTimes = times;
+            curveShown = 0;
+            plot.setData(velocityPlot, times, velocities, 0);
+        }
+        else
+            feed.load(times, velocities, CHART_SAMPLES);
+    }
+    
+    /**
+     * Reveals the velocity curve up to a time, on the chart in use.
+     * @param t : largest time shown, in seconds
+     */
+    private void revealVelocityCurve(double t)
+    {
+        if(!useCanvasPlot)
+        {
+            feed.advanceTo(t);
+            return;
+        }
+        int shown = curveShown;
+        while(shown < curveTimes.length && curveTimes[shown] <= t)
+            shown++;
+        if(shown != curveShown)
+        {
+            curveShown = shown;
+            plot.setCount(velocityPlot, shown);
+        }
+    }
+    
+    /**
+     * Moves the armature and the projectile along a computed trajectory and reveals the velocity
+     * curve of the chart up to the same time. The run lasts ANIMATION_DURATION of clock time, frames
+     * sample the trajectory at the interpolated clock time.
+     */
+    private class RunSimulation implements SimulationClock.Simulation
+    {
+        private final DenseTrajectory trajectory;
+        private final double[] state;
+        private final double travel;            //distance covered on screen, in pixels
+        private final double duration = ANIMATION_DURATION / 1000.0;   //in seconds
+        
+        RunSimulation(DenseTrajectory trajectory)
+        {
+            this.trajectory = trajectory;
+            state = new double[trajectory.getDimension()];
+            travel = upperRail.getX() + upperRail.getWidth() - armature.getX();
+        }
+        
+        @Override
+        public void step(double time, double dt)
+        {
+            if(time + dt >= duration)
+            {
+                show(1.0);
+                clock.halt();
+                launchProjectile();
+            }
+        }
+        
+        @Override
+        public void render(double time, double alpha)
+        {
+            show(Math.min((time + alpha * clock.getTimeStep()) / duration, 1.0));
+        }
+        
+        /**
+         * Places armature and projectile, and reveals the chart, at a fraction of the run.
+         * @param frac : from 0 to 1
+         */
+        private void show(double frac)
+        {
+            double t = frac * trajectory.getEndTime();
+            trajectory.sample(t, state);
+            double translate = Math.min(state[0] / LorentzForceModel.RAIL_LENGTH, 1.0) * travel;
+            armature.setTranslateX(translate);
+            projectile.setTranslateX(translate);
+            revealVelocityCurve(t);
+        }
+    }
+}
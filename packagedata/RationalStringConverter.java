@@ -0,0 +1,30 @@
+package packagedata;
+
+import javafx.util.StringConverter;
+import javafx.util.converter.NumberStringConverter;
+import packagemodel.Rational;
+
+/**
+ * Property converter accepting fractions such as "2/3" as well as decimals. Numbers are
+ * formatted back exactly like NumberStringConverter, which also parses anything that is not a fraction.
+ * @author patrickspensieri
+ */
+public class RationalStringConverter extends StringConverter<Number>
+{
+    private final NumberStringConverter decimalConverter = new NumberStringConverter();
+
+    @Override
+    public String toString(Number value)
+    {
+        return decimalConverter.toString(value);
+    }
+
+    @Override
+    public Number fromString(String text)
+    {
+        Rational exact = Rational.tryParse(text);
+        if(exact == null)
+            return decimalConverter.fromString(text);
+        return exact.doubleValue();
+    }
+}
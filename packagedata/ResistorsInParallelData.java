@@ -1,32 +1,44 @@
 package packagedata;
 
-import javafx.animation.ParallelTransition;
-import javafx.animation.PathTransition;
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
 import javafx.beans.binding.Bindings;
 import javafx.beans.binding.DoubleBinding;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.SimpleDoubleProperty;
+import javafx.collections.FXCollections;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
+import javafx.geometry.Pos;
 import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.chart.BarChart;
 import javafx.scene.chart.CategoryAxis;
-import javafx.scene.chart.Chart;
+import javafx.scene.chart.LineChart;
 import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.ScatterChart;
 import javafx.scene.chart.XYChart;
 import javafx.scene.chart.XYChart.Data;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.Slider;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TabPane;
 import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.Pane;
+import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Circle;
 import javafx.scene.shape.Line;
-import javafx.scene.shape.LineTo;
-import javafx.scene.shape.MoveTo;
-import javafx.scene.shape.Path;
-import javafx.util.Duration;
+import packagemodel.ElectronFlow;
+import packagemodel.ResistorsInParallelModel;
+import packagemodel.SampleRingBuffer;
+import packagemodel.SimulationClock;
+import packagemodel.TransientParallelCircuit;
 import static packagefx.InterfaceFX.CANVAS_HEIGHT;
 import static packagefx.InterfaceFX.CANVAS_WIDTH;
 import static packagefx.InterfaceFX.HGAP_DEFAULT;
@@ -48,8 +60,42 @@ public class ResistorsInParallelData extends AbstractData
     
     private Label[] rLabelArray;
     private Slider[] rSliderArray;
+    private CheckBox incrementalCheckBox;     //selects the bank (incremental) or the network solver for req
+    private ChoiceBox<String>[] elementChoiceArray;   //element in series with each resistor
+    private static final String[] ELEMENT_NAMES = {"R", "R + C", "R + L"};   //same order as Element
+    
+    private NumberAxis transientAxis;
+    private SeriesWindowFeed[] transientFeeds;        //[0] source current, [i+1] current of resistor i
+    private CanvasPlot transientPlot;                 //draws the waveforms directly, when useCanvasPlot is set
+    private NumberAxis voltageTimeAxis;               //time axis of the node voltage chart
+    private SeriesWindowFeed voltageFeed;             //node voltage
+    private CanvasPlot voltagePlot;                   //draws the node voltage directly, when useCanvasPlot is set
+    private double[] barX, barY;                      //bars of the canvas plot : Req, then every resistor
+    private CheckBox trapezoidalCheckBox;
+    private Button transientButton;
+    private FrameScheduler transientScheduler;        //integrates and streams the transient, frame by frame
     private Pane animPane;
-    private Circle[] circleArray;             //array holding electrons (circle objects)
+    private Canvas electronCanvas;            //electrons are drawn here
+    private ElectronFlow electronFlow;        //electron positions, in primitive buffers
+    private FlowSimulation flowSimulation;    //advances the electrons every clock step
+    private static final Color[] BRANCH_COLORS = {Color.GOLD, Color.ORANGE, Color.DEEPSKYBLUE, Color.LIMEGREEN,
+        Color.ORCHID};
+    private static final double ELECTRON_RADIUS = 2.0;
+    private static final int MAX_ELECTRONS = 8192;
+    private static final double EMISSION_PER_AMP = 60;     //electrons per second per amp
+    private static final double SPEED_PER_AMP = 150;       //pixels per second per amp
+    private static final double FLOW_DURATION = 10;        //emission time of a run, in seconds
+    
+    private SampleRingBuffer trailSamples;    //recent (Req, current) samples, timestamps from nanoTime in seconds
+    private ChartTrail trail;
+    private FrameScheduler trailScheduler;    //redraws the trail while it fades
+    private static final int TRAIL_CAPACITY = 4096;
+    private static final double TRAIL_FADE_TIME = 8;       //in seconds
+    
+    private TransientParallelCircuit transientCircuit;
+    private static final int TRANSIENT_STEPS = 200000;
+    private static final int TRANSIENT_STEPS_PER_FRAME = 5000;
+    private static final double VOLTAGE_CHART_HEIGHT = 160;
    
     // END USER INTERFACE FIELDS //////////////////////////////////////////////////////
     
@@ -65,10 +111,12 @@ public class ResistorsInParallelData extends AbstractData
     private DoubleProperty[] rArray;
     private DoubleBinding req;
     
-    private DoubleBinding current; // = req.divide(voltage); // in amperes
+    private DoubleBinding current; // = voltage / req, in amperes
+    private DoubleBinding[] branchCurrentArray;     // in amperes, through each resistor
+    private ResistorsInParallelModel model; //headless model computing req and the currents from voltage and rArray
     private double electronX;
     private double electronY;
-    private LineTo[][] lineToArray;
+    private double[][] branchPathX, branchPathY;   //path of the electrons of each branch
     // END DATA FIELDS ////////////////////////////////////////////////////////////////
     
     // CONSTRUCTOR(S) /////////////////////////////////////////////////////////////////
@@ -91,40 +139,27 @@ public class ResistorsInParallelData extends AbstractData
             rArray[i] = new SimpleDoubleProperty(DEFAULT_VALUE_RES);
         }
         
-        // initialize the reqTest DoubleBinding
-        req = new DoubleBinding() 
+        // the model keeps req and the currents, every property change is pushed into it
+        model = new ResistorsInParallelModel(numberRes, voltage.get(), DEFAULT_VALUE_RES);
+        for(int i = 0; i < numberRes; i++)
         {
+            final int index = i;
+            rArray[i].addListener(new InvalidationListener()
             {
-                for(int i = 0; i < rArray.length; i++)
-                    super.bind(rArray);
-            }
- 
-            @Override
-            protected double computeValue() 
-            {
-                double x = 0;
-                for(int i = 0; i < numberRes; i++)
+                @Override
+                public void invalidated(Observable o)
                 {
-                    x += (1 / rArray[i].getValue());
+                    model.setResistance(index, rArray[index].get());
                 }
-                return (Math.pow(x, -1));
-            }
-        };
+            });
+        }
+        GraphDoubleBinding.feed(model.getGraph(), model.getVoltageNode(), voltage);
         
-        // initialize the current DoubleBinding
-        current = new DoubleBinding()
-        {
-            {
-                super.bind(req);
-            }
-            
-            @Override
-            protected double computeValue()
-            {
-                return (voltage.get() / req.get());
-//                return String.format(Locale.ENGLISH, "%.2f", someDouble);
-            }
-        };
+        branchCurrentArray = new DoubleBinding[numberRes];
+        for(int i = 0; i < numberRes; i++)
+            branchCurrentArray[i] = new GraphDoubleBinding(model.getGraph(), model.getBranchCurrentNode(i));
+        req = new GraphDoubleBinding(model.getGraph(), model.getReqNode());
+        current = new GraphDoubleBinding(model.getGraph(), model.getCurrentNode());
     }
     
     // END CONSTRUCTOR(S) /////////////////////////////////////////////////////////////
@@ -148,6 +183,7 @@ public class ResistorsInParallelData extends AbstractData
                 
         rLabelArray = new Label[numberRes];
         rSliderArray = new Slider[numberRes];
+        elementChoiceArray = new ChoiceBox[numberRes];
         
         for(int i = 0; i < numberRes; i++)
         {
@@ -155,8 +191,23 @@ public class ResistorsInParallelData extends AbstractData
             rSliderArray[i] = new Slider(MIN_VALUE_RES, MAX_VALUE_RES, DEFAULT_VALUE_RES);
             Bindings.bindBidirectional(rArray[i], rSliderArray[i].valueProperty());
             rLabelArray[i].textProperty().bind(Bindings.format("Res " + (i + 1) + " : %.2f Ω", rArray[i]));
-            toggleControlPane.addRow(i, rLabelArray[i], rSliderArray[i]);
+            //element in series with the resistor, only used by the transient chart
+            elementChoiceArray[i] = new ChoiceBox<String>(FXCollections.observableArrayList(ELEMENT_NAMES));
+            elementChoiceArray[i].getSelectionModel().select(0);
+            toggleControlPane.addRow(i, rLabelArray[i], rSliderArray[i], elementChoiceArray[i]);
         }
+        
+        incrementalCheckBox = new CheckBox("Incremental Req");
+        incrementalCheckBox.setSelected(true);
+        incrementalCheckBox.selectedProperty().addListener(new InvalidationListener()
+        {
+            @Override
+            public void invalidated(Observable o)
+            {
+                model.setIncremental(incrementalCheckBox.isSelected());
+            }
+        });
+        toggleControlPane.add(incrementalCheckBox, 1, numberRes);
         return toggleControlPane;
     }  
     
@@ -165,8 +216,11 @@ public class ResistorsInParallelData extends AbstractData
      * @return 
      */
     @Override
-    protected Chart buildChart1()
+    protected Node buildChart1()
     {
+        if(useCanvasPlot)
+            return buildBarPlot();
+
         CategoryAxis xAxis = new CategoryAxis();
         xAxis.setLabel("Equivalent Resistance and Resistors");
         xAxis.setAnimated(false);
@@ -197,6 +251,45 @@ public class ResistorsInParallelData extends AbstractData
         return barChart; 
     }
     
+    /**
+     * Builds the CanvasPlot counterpart of the bar chart, redrawn whenever req or a resistor changes.
+     * @return : plot
+     */
+    private CanvasPlot buildBarPlot()
+    {
+        final CanvasPlot plot = new CanvasPlot();
+        plot.setXLabel("Equivalent Resistance and Resistors");
+        plot.setYLabel("Resistance (ohms)");
+        plot.setYRange(0, MAX_VALUE_RES, false);
+        String[] names = new String[numberRes + 1];
+        barX = new double[numberRes + 1];
+        barY = new double[numberRes + 1];
+        names[0] = "Req";
+        for(int j = 0; j < numberRes; j++)
+            names[j + 1] = "Res " + j;
+        for(int j = 0; j <= numberRes; j++)
+            barX[j] = j;
+        plot.setXTickLabels(names);
+        final int bars = plot.addSeries(null, CanvasPlot.Mode.BAR, Color.ORANGE);
+        
+        InvalidationListener barListener = new InvalidationListener()
+        {
+            @Override
+            public void invalidated(Observable o)
+            {
+                barY[0] = req.get();
+                for(int j = 0; j < numberRes; j++)
+                    barY[j + 1] = rArray[j].get();
+                plot.setData(bars, barX, barY, barX.length);
+            }
+        };
+        req.addListener(barListener);
+        for(int j = 0; j < numberRes; j++)
+            rArray[j].addListener(barListener);
+        barListener.invalidated(req);
+        return plot;
+    }
+    
     /**
      * Builds the secondary chart.
      * @return 
@@ -205,12 +298,12 @@ public class ResistorsInParallelData extends AbstractData
     protected Node buildChart2()
     {
         NumberAxis xAxis = new NumberAxis();
-        xAxis.setLabel("Equivalent Resistance");
-        xAxis.setUpperBound((int)Math.round(getMaxReq()) + 1);
+        xAxis.setLabel("Equivalent Resistance and Resistors (ohms)");
+        xAxis.setUpperBound((int)Math.round(Math.max(getMaxReq(), MAX_VALUE_RES)) + 1);
         xAxis.setAutoRanging(false);
         xAxis.setAnimated(false);
         xAxis.setMinorTickCount(0);
-        xAxis.setTickUnit(.5);
+        xAxis.setTickUnit(1);
         
         NumberAxis yAxis = new NumberAxis();
         yAxis.setLabel("Current (amps)");
@@ -228,8 +321,196 @@ public class ResistorsInParallelData extends AbstractData
         dataPoint.YValueProperty().bind(current);
         series.getData().add(dataPoint);
         scatterChart.getData().add(series);
-            
-        return scatterChart; 
+        
+        //one point per resistor : its resistance and the current through its branch
+        final XYChart.Series<Number,Number> branchSeries = new XYChart.Series();
+        for(int i = 0; i < numberRes; i++)
+        {
+            Data branchPoint = new XYChart.Data(rArray[i], branchCurrentArray[i]);
+            branchPoint.XValueProperty().bind(rArray[i]);
+            branchPoint.YValueProperty().bind(branchCurrentArray[i]);
+            branchSeries.getData().add(branchPoint);
+        }
+        scatterChart.getData().add(branchSeries);
+        
+        //fading trail of the (Req, current) point, recorded whenever the current changes
+        trailSamples = new SampleRingBuffer(TRAIL_CAPACITY);
+        trail = new ChartTrail(xAxis, yAxis, Color.CRIMSON);
+        final StackPane chartPane = new StackPane(scatterChart, trail);
+        StackPane.setAlignment(trail, Pos.TOP_LEFT);
+        trail.widthProperty().bind(chartPane.widthProperty());
+        trail.heightProperty().bind(chartPane.heightProperty());
+        trailScheduler = new FrameScheduler()
+        {
+            @Override
+            protected void update(double elapsed, double delta)
+            {
+                double now = System.nanoTime() / 1.0e9;
+                trailSamples.discardBefore(now - TRAIL_FADE_TIME);
+                trail.draw(trailSamples, now, TRAIL_FADE_TIME);
+                //nothing left to fade
+                if(trailSamples.size() == 0)
+                    pause();
+            }
+        };
+        current.addListener(new InvalidationListener()
+        {
+            @Override
+            public void invalidated(Observable o)
+            {
+                trailSamples.add(req.get(), current.get(), System.nanoTime() / 1.0e9);
+                trailScheduler.play();
+            }
+        });
+        
+        TabPane tabPane = new TabPane();
+        tabPane.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
+        tabPane.getTabs().addAll(new Tab("DC", chartPane), new Tab("Transient", buildTransientPane()));
+        return tabPane; 
+    }
+    
+    /**
+     * Builds the transient pane : source and branch currents over time after the source is switched on,
+     * the voltage across the branches below them, with the integration method and the button starting
+     * the run.
+     * @return : pane
+     */
+    private Node buildTransientPane()
+    {
+        transientAxis = new NumberAxis();
+        transientAxis.setLabel("time (s)");
+        transientAxis.setAutoRanging(false);
+        transientAxis.setAnimated(false);
+        NumberAxis currentAxis = new NumberAxis();
+        currentAxis.setLabel("Current (amps)");
+        currentAxis.setAnimated(false);
+        
+        LineChart<Number,Number> transientChart = new LineChart<Number,Number>(transientAxis, currentAxis);
+        transientChart.setAnimated(false);
+        transientChart.setCreateSymbols(false);
+        transientFeeds = new SeriesWindowFeed[numberRes + 1];
+        for(int i = 0; i <= numberRes; i++)
+        {
+            XYChart.Series<Number,Number> waveform = new XYChart.Series<Number,Number>();
+            waveform.setName((i == 0) ? "source" : "Res " + i);
+            transientChart.getData().add(waveform);
+            transientFeeds[i] = new SeriesWindowFeed(waveform, transientAxis);
+        }
+        voltageTimeAxis = new NumberAxis();
+        voltageTimeAxis.setLabel("time (s)");
+        voltageTimeAxis.setAutoRanging(false);
+        voltageTimeAxis.setAnimated(false);
+        NumberAxis voltageAxis = new NumberAxis();
+        voltageAxis.setLabel("Voltage (volts)");
+        voltageAxis.setAnimated(false);
+        LineChart<Number,Number> voltageChart = new LineChart<Number,Number>(voltageTimeAxis, voltageAxis);
+        voltageChart.setAnimated(false);
+        voltageChart.setCreateSymbols(false);
+        voltageChart.setPrefHeight(VOLTAGE_CHART_HEIGHT);
+        XYChart.Series<Number,Number> voltageWaveform = new XYChart.Series<Number,Number>();
+        voltageWaveform.setName("node");
+        voltageChart.getData().add(voltageWaveform);
+        voltageFeed = new SeriesWindowFeed(voltageWaveform, voltageTimeAxis);
+        //every sample of the run is drawn by the canvas plot, the line chart only shows a downsampled window
+        if(useCanvasPlot)
+        {
+            transientPlot = new CanvasPlot();
+            transientPlot.setXLabel("time (s)");
+            transientPlot.setYLabel("Current (amps)");
+            transientPlot.addSeries("source", CanvasPlot.Mode.LINE, Color.CRIMSON);
+            for(int i = 0; i < numberRes; i++)
+                transientPlot.addSeries("Res " + (i + 1), CanvasPlot.Mode.LINE, BRANCH_COLORS[i % BRANCH_COLORS.length]);
+            voltagePlot = new CanvasPlot();
+            voltagePlot.setPrefHeight(VOLTAGE_CHART_HEIGHT);
+            voltagePlot.setXLabel("time (s)");
+            voltagePlot.setYLabel("Voltage (volts)");
+            voltagePlot.addSeries("node", CanvasPlot.Mode.LINE, Color.CRIMSON);
+        }
+        
+        trapezoidalCheckBox = new CheckBox("Trapezoidal rule");
+        transientButton = new Button("Switch on");
+        transientButton.setOnAction(new EventHandler<ActionEvent>()
+        {
+            @Override
+            public void handle(ActionEvent e)
+            {
+                runTransient();
+            }
+        });
+        transientScheduler = new FrameScheduler()
+        {
+            @Override
+            protected void update(double elapsed, double delta)
+            {
+                int remaining = TRANSIENT_STEPS + 1 - transientCircuit.getSampleCount();
+                transientCircuit.step(Math.min(TRANSIENT_STEPS_PER_FRAME, remaining));
+                showTransient();
+                if(remaining <= TRANSIENT_STEPS_PER_FRAME)
+                {
+                    pause();
+                    transientButton.setDisable(false);
+                }
+            }
+        };
+        
+        HBox controls = new HBox(HGAP_DEFAULT, transientButton, trapezoidalCheckBox);
+        return new VBox(VGAP_DEFAULT, useCanvasPlot ? transientPlot : transientChart,
+                useCanvasPlot ? voltagePlot : voltageChart, controls);
+    }
+    
+    /**
+     * Builds the transient circuit from the toggle values and integrates it over five of its longest
+     * time constants, streaming the waveforms to the chart every frame.
+     */
+    private void runTransient()
+    {
+        transientButton.setDisable(true);
+        TransientParallelCircuit.Element[] elements = new TransientParallelCircuit.Element[numberRes];
+        for(int i = 0; i < numberRes; i++)
+        {
+            int choice = elementChoiceArray[i].getSelectionModel().getSelectedIndex();
+            elements[i] = TransientParallelCircuit.Element.values()[Math.max(choice, 0)];
+        }
+        transientCircuit = model.createTransientCircuit(elements, trapezoidalCheckBox.isSelected()
+                ? TransientParallelCircuit.Method.TRAPEZOIDAL : TransientParallelCircuit.Method.BACKWARD_EULER,
+                TRANSIENT_STEPS);
+        double duration = transientCircuit.getTimeStep() * TRANSIENT_STEPS;
+        transientAxis.setLowerBound(0);
+        transientAxis.setUpperBound(duration);
+        transientAxis.setTickUnit(duration / 5);
+        voltageTimeAxis.setLowerBound(0);
+        voltageTimeAxis.setUpperBound(duration);
+        voltageTimeAxis.setTickUnit(duration / 5);
+        for(int i = 0; i < transientFeeds.length; i++)
+            transientFeeds[i].clear();
+        voltageFeed.clear();
+        if(useCanvasPlot)
+        {
+            transientPlot.setXRange(0, duration, false);
+            voltagePlot.setXRange(0, duration, false);
+        }
+        transientScheduler.restart();
+    }
+    
+    /**
+     * Streams the recorded waveforms of transientCircuit to the charts.
+     */
+    private void showTransient()
+    {
+        int count = transientCircuit.getSampleCount();
+        double[] times = transientCircuit.getTimes();
+        if(useCanvasPlot)
+        {
+            transientPlot.setData(0, times, transientCircuit.getSourceCurrents(), count);
+            for(int i = 0; i < numberRes; i++)
+                transientPlot.setData(i + 1, times, transientCircuit.getBranchCurrents(i), count);
+            voltagePlot.setData(0, times, transientCircuit.getNodeVoltages(), count);
+            return;
+        }
+        transientFeeds[0].update(times, transientCircuit.getSourceCurrents(), count);
+        for(int i = 0; i < numberRes; i++)
+            transientFeeds[i + 1].update(times, transientCircuit.getBranchCurrents(i), count);
+        voltageFeed.update(times, transientCircuit.getNodeVoltages(), count);
     }
     
     /**
@@ -263,11 +544,13 @@ public class ResistorsInParallelData extends AbstractData
         electronX = (0.5*CANVAS_WIDTH - BATTERY_GAP/2 - DEF_STROKE_W);
         electronY = (0.9*CANVAS_HEIGHT);
         
-        // one row of MoveTo objects for each electron/resistor
-        // lineToArray[i][0] = lower left corner of circuit
+        // one path of six vertices for each resistor branch, followed by the electrons of that branch
+        // vertex 0 = starting point (electronX, electronY)
+        // vertex 1 = lower left corner of circuit
         // ...
-        // lineToArray[i][4] = starting point (electronX, electronY)
-        lineToArray = new LineTo[numberRes][5];
+        // vertex 5 = starting point (electronX, electronY)
+        branchPathX = new double[numberRes][];
+        branchPathY = new double[numberRes][];
         
         //CODE TO DRAW BRANCHES AND RESISTORS
         //gaps between resistor branches
@@ -277,16 +560,12 @@ public class ResistorsInParallelData extends AbstractData
         //draw resistor branches, from TOP TO BOTTOM
         for(int i = 0; i < numberRes; i++)
         {
-            //lower left circuit corner
-            lineToArray[i][0] = new LineTo((0.1*CANVAS_WIDTH), (0.9*CANVAS_HEIGHT));
-            //upper left circuit corner
-            lineToArray[i][1] = new LineTo((0.1*CANVAS_WIDTH), (0.1*CANVAS_HEIGHT + resBranchGap*i));
-            //upper right circuit corner
-            lineToArray[i][2] = new LineTo((0.9*CANVAS_WIDTH), (0.1*CANVAS_HEIGHT + resBranchGap*i));
-            //lower right circuit corner
-            lineToArray[i][3] = new LineTo((0.9*CANVAS_WIDTH), (0.9*CANVAS_HEIGHT));
-            //starting point of electron(electronX, electronY)
-            lineToArray[i][4] = new LineTo(electronX, electronY);
+            double branchY = 0.1*CANVAS_HEIGHT + resBranchGap*i;
+            //start, lower left, upper left, upper right and lower right circuit corners, back to start
+            branchPathX[i] = new double[] {electronX, 0.1*CANVAS_WIDTH, 0.1*CANVAS_WIDTH, 0.9*CANVAS_WIDTH,
+                0.9*CANVAS_WIDTH, electronX};
+            branchPathY[i] = new double[] {electronY, 0.9*CANVAS_HEIGHT, branchY, branchY, 0.9*CANVAS_HEIGHT,
+                electronY};
             
             //left segment
             lineArray[5*(i+1)+1] = new Line((0.1*CANVAS_WIDTH), (0.1*CANVAS_HEIGHT + resBranchGap*i), (0.45*CANVAS_WIDTH),
@@ -307,10 +586,31 @@ public class ResistorsInParallelData extends AbstractData
         {
             animPane.getChildren().add(lineArray[j]);
         }
+        
+        //electrons are drawn on a canvas above the circuit
+        electronCanvas = new Canvas(CANVAS_WIDTH, CANVAS_HEIGHT);
+        electronCanvas.setMouseTransparent(true);
+        animPane.getChildren().add(electronCanvas);
+        electronFlow = new ElectronFlow(MAX_ELECTRONS, branchPathX, branchPathY);
+        electronFlow.setScale(EMISSION_PER_AMP, SPEED_PER_AMP);
+        flowSimulation = new FlowSimulation();
 
         return animPane; 
     }
     
+    /**
+     * Stops the trail and the transient integration, then the clock and the animation.
+     */
+    @Override
+    public void dispose()
+    {
+        if(trailScheduler != null)
+            trailScheduler.cancel();
+        if(transientScheduler != null)
+            transientScheduler.cancel();
+        super.dispose();
+    }
+    
     /**
      * Resets all resistor values to default.
      */
@@ -320,8 +620,9 @@ public class ResistorsInParallelData extends AbstractData
         for(int i = 0; i < rArray.length; i++)
             rArray[i].setValue(DEFAULT_VALUE_RES);
         
-        for(int j = 0; j < circleArray.length; j++)
-            animPane.getChildren().remove(circleArray[j]);
+        stopClock();
+        electronFlow.clear();
+        drawElectrons();
         
         //enable the start button to be clicked
         actionButtonArray[0].setDisable(false);
@@ -341,53 +642,62 @@ public class ResistorsInParallelData extends AbstractData
         //enable the pause button
         actionButtonArray[1].setDisable(false);
         
-        ParallelTransition parTransition = new ParallelTransition();
-        parTransition.setAutoReverse(true);
-        // VERY IMPORTANT LINE
-        animation = parTransition;
-        
-        // array holding the electrons (circle objects)
-        circleArray = new Circle[numberRes];
-        
-        // array of path objects for each of the electrons
-        Path[] pathArray = new Path[numberRes];
-        // array of PathTransition objects for each of the electrons
-        PathTransition[] pathTransitionArray = new PathTransition[numberRes];
-        for(int i = 0; i < numberRes; i++)
+        electronFlow.clear();
+        electronFlow.setEmitting(true);
+        runClock(flowSimulation);
+    }
+    
+    /**
+     * Draws every electron of electronFlow on the canvas, coloured by branch.
+     */
+    private void drawElectrons()
+    {
+        GraphicsContext gc = electronCanvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, electronCanvas.getWidth(), electronCanvas.getHeight());
+        double[] x = electronFlow.getX();
+        double[] y = electronFlow.getY();
+        int[] branch = electronFlow.getBranch();
+        for(int b = 0; b < numberRes; b++)
         {
-            // create an electron for each resistor branch and add to animPane ... new Circle(xPos, yPos, rad, col);
-            circleArray[i] = new Circle(electronX, electronY, 5.0, Color.GOLD);
-            animPane.getChildren().add(circleArray[i]);
-            // create a path for each electron
-            pathArray[i] = new Path();
-            pathArray[i].getElements().add(new MoveTo(electronX, electronY));
-            pathArray[i].getElements().add(lineToArray[i][0]);
-            pathArray[i].getElements().add(lineToArray[i][1]);
-            pathArray[i].getElements().add(lineToArray[i][2]);
-            pathArray[i].getElements().add(lineToArray[i][3]);
-            pathArray[i].getElements().add(lineToArray[i][4]);
-                        
-            // create a PathTransition for each electron and add to main parTransition
-            pathTransitionArray[i] = new PathTransition(Duration.seconds(5), pathArray[i], circleArray[i]);
-            parTransition.getChildren().add(pathTransitionArray[i]);
-        }   
-        parTransition.play();
-        //remove electrons when animation is finished
-        parTransition.setOnFinished(new EventHandler<ActionEvent>() 
+            gc.setFill(BRANCH_COLORS[b % BRANCH_COLORS.length]);
+            for(int i = 0; i < electronFlow.getCount(); i++)
+            {
+                if(branch[i] == b)
+                    gc.fillOval(x[i] - ELECTRON_RADIUS, y[i] - ELECTRON_RADIUS, 2*ELECTRON_RADIUS, 2*ELECTRON_RADIUS);
+            }
+        }
+    }
+    
+    /**
+     * Moves the electrons every clock step with the current of their branch, frames draw them. Emission
+     * stops after FLOW_DURATION, and the run ends once the last electron is back to the battery.
+     */
+    private class FlowSimulation implements SimulationClock.Simulation
+    {
+        @Override
+        public void step(double time, double dt)
         {
-            @Override
-            public void handle(ActionEvent e) 
+            for(int i = 0; i < numberRes; i++)
+                electronFlow.setCurrent(i, branchCurrentArray[i].get());
+            electronFlow.setEmitting(time < FLOW_DURATION);
+            electronFlow.step(dt);
+            
+            if(time + dt >= FLOW_DURATION && electronFlow.getCount() == 0)
             {
-                for(int j = 0; j < circleArray.length; j++)
-                {
-                    animPane.getChildren().remove(circleArray[j]);
-                    //enable the start button when start() method is completed
-                    actionButtonArray[0].setDisable(false);
-                    actionButtonArray[1].setDisable(true);
-                    actionButtonArray[2].setDisable(true);
-                }
+                clock.halt();
+                drawElectrons();
+                //enable the start button when start() method is completed
+                actionButtonArray[0].setDisable(false);
+                actionButtonArray[1].setDisable(true);
+                actionButtonArray[2].setDisable(true);
             }
-        });    
+        }
+        
+        @Override
+        public void render(double time, double alpha)
+        {
+            drawElectrons();
+        }
     }
     
     
@@ -0,0 +1,94 @@
+package packagedata;
+
+import java.util.ArrayList;
+import java.util.List;
+import javafx.scene.chart.XYChart;
+
+/**
+ * Reveals a precomputed (x, y) curve in an XYChart.Series progressively. Each call to advanceTo()
+ * commits every pending point with a single addAll, so the chart sees one list change (and one
+ * relayout) per animation pulse however many samples the curve holds.
+ * @author patrickspensieri
+ */
+public class SeriesBatchFeed
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    private final XYChart.Series<Number,Number> series;
+    private final List<XYChart.Data<Number,Number>> batch;     //reused between pulses
+    private double[] x;
+    private double[] y;
+    private int count;                  //number of points of the curve
+    private int committed;              //number of points already in the series
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    public SeriesBatchFeed(XYChart.Series<Number,Number> series)
+    {
+        this.series = series;
+        batch = new ArrayList<XYChart.Data<Number,Number>>();
+        x = new double[0];
+        y = new double[0];
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    /**
+     * Replaces the curve to reveal, the series is not touched until the next advanceTo().
+     * @param x : x values, ascending, the buffer is kept by the feed
+     * @param y : y values, the buffer is kept by the feed
+     * @param count : number of valid points in the buffers
+     */
+    public void load(double[] x, double[] y, int count)
+    {
+        this.x = x;
+        this.y = y;
+        this.count = count;
+        committed = 0;
+    }
+
+    /**
+     * Adds to the series, in one batch, every point of the curve with an x value up to limit.
+     * @param limit : largest x value to show
+     * @return : number of points added
+     */
+    public int advanceTo(double limit)
+    {
+        int end = committed;
+        while(end < count && x[end] <= limit)
+            end++;
+        if(end == committed)
+            return 0;
+
+        batch.clear();
+        for(int i = committed; i < end; i++)
+            batch.add(new XYChart.Data<Number,Number>(x[i], y[i]));
+        series.getData().addAll(batch);
+        batch.clear();
+
+        int added = end - committed;
+        committed = end;
+        return added;
+    }
+
+    /**
+     * Adds every remaining point of the curve.
+     */
+    public void finish()
+    {
+        if(count > 0)
+            advanceTo(x[count - 1]);
+    }
+
+    /**
+     * Returns true when the whole curve is in the series.
+     * @return : true if finished
+     */
+    public boolean isFinished()
+    {
+        return committed >= count;
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
@@ -0,0 +1,114 @@
+package packagedata;
+
+import java.util.ArrayList;
+import java.util.List;
+import javafx.collections.ObservableList;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
+import packagemodel.Downsampler;
+
+/**
+ * Feed stage between a primitive (x, y) buffer and an XYChart.Series. Only the points inside the
+ * current x-window of the axis are shown, downsampled to the pixel width of the axis, and the
+ * XYChart.Data objects already in the series are reused so the chart cost stays bounded however
+ * many points the buffer holds.
+ * @author patrickspensieri
+ */
+public class SeriesWindowFeed
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    private static final int DEFAULT_POINTS = 400;      //used while the axis has not been laid out yet
+    private static final int MIN_POINTS = 3;
+
+    private final XYChart.Series<Number,Number> series;
+    private final NumberAxis xAxis;
+    private final List<XYChart.Data<Number,Number>> dataPool;   //dataPool[0..shown-1] are in the series
+    private double[] outX;
+    private double[] outY;
+    private int shown;
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    public SeriesWindowFeed(XYChart.Series<Number,Number> series, NumberAxis xAxis)
+    {
+        this.series = series;
+        this.xAxis = xAxis;
+        dataPool = new ArrayList<XYChart.Data<Number,Number>>();
+        outX = new double[DEFAULT_POINTS];
+        outY = new double[DEFAULT_POINTS];
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    /**
+     * Shows the first count points of the buffer that lie inside the x-window of the axis.
+     * @param x : x values, ascending
+     * @param y : y values
+     * @param count : number of valid points in the buffers
+     */
+    public void update(double[] x, double[] y, int count)
+    {
+        int from = Downsampler.lowerBound(x, count, xAxis.getLowerBound());
+        int to = Downsampler.upperBound(x, count, xAxis.getUpperBound());
+        int threshold = getPointBudget();
+        if(outX.length < threshold)
+        {
+            outX = new double[threshold];
+            outY = new double[threshold];
+        }
+        int visible = Downsampler.largestTriangleThreeBuckets(x, y, from, to, threshold, outX, outY);
+
+        ObservableList<XYChart.Data<Number,Number>> data = series.getData();
+        //items added by someone else (placeholders) are dropped, the feed owns the series
+        if(data.size() != shown)
+            clear();
+
+        for(int i = 0; i < visible; i++)
+        {
+            if(i < dataPool.size())
+            {
+                XYChart.Data<Number,Number> point = dataPool.get(i);
+                point.setXValue(outX[i]);
+                point.setYValue(outY[i]);
+            }
+            else
+                dataPool.add(new XYChart.Data<Number,Number>(outX[i], outY[i]));
+        }
+
+        if(visible > shown)
+            data.addAll(dataPool.subList(shown, visible));
+        else if(visible < shown)
+        {
+            data.remove(visible, shown);
+            //removed points may still be fading out of the chart, they are not reused
+            dataPool.subList(visible, dataPool.size()).clear();
+        }
+        shown = visible;
+    }
+
+    /**
+     * Removes every point from the series.
+     */
+    public void clear()
+    {
+        series.getData().clear();
+        dataPool.clear();
+        shown = 0;
+    }
+
+    /**
+     * Returns the number of points the chart may draw, one per pixel of the axis.
+     * @return : point budget
+     */
+    private int getPointBudget()
+    {
+        double width = xAxis.getWidth();
+        if(width <= 0)
+            return DEFAULT_POINTS;
+        return Math.max(MIN_POINTS, (int)Math.ceil(width));
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
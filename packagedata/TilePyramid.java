@@ -0,0 +1,353 @@
+package packagedata;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Mip pyramid of an image cut into square tiles and stored in one memory-mapped file. Level 0 is the
+ * full resolution image, every next level halves both dimensions, down to the level that fits in one
+ * tile. Tiles are tileSize x tileSize ARGB pixels, edge tiles are padded with transparent pixels.
+ * <p>
+ * The source is decoded once, one band of tileSize rows at a time, and every next level is averaged
+ * from the previous one in the file, so building takes memory for one band whatever the image size.
+ * The file records the length and date of its source and is reused as long as they match. Reading a
+ * tile copies it from the mapping, the operating system pages in only the tiles actually read.
+ * @author patrickspensieri
+ */
+public class TilePyramid
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    private static final int MAGIC = 0x54494C45;        // "TILE"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;          // in bytes
+
+    private final int tileSize;
+    private final int[] widths, heights;                //size of every level, in pixels
+    private final int[] tilesX, tilesY;
+    private final IntBuffer[] levels;                   //mapped tiles of every level, row of tiles after row
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    private TilePyramid(int width, int height, int tileSize)
+    {
+        this.tileSize = tileSize;
+        int count = 1;
+        for(int w = width, h = height; w > tileSize || h > tileSize; w = (w + 1) / 2, h = (h + 1) / 2)
+            count++;
+        widths = new int[count];
+        heights = new int[count];
+        tilesX = new int[count];
+        tilesY = new int[count];
+        levels = new IntBuffer[count];
+        for(int level = 0; level < count; level++)
+        {
+            widths[level] = (level == 0) ? width : (widths[level - 1] + 1) / 2;
+            heights[level] = (level == 0) ? height : (heights[level - 1] + 1) / 2;
+            tilesX[level] = (widths[level] + tileSize - 1) / tileSize;
+            tilesY[level] = (heights[level] + tileSize - 1) / tileSize;
+        }
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    /**
+     * Opens the pyramid of an image, building the tile file first unless it already holds the
+     * pyramid of this version of the source.
+     * @param source : image readable by ImageIO (PNG, JPEG, ...)
+     * @param tileFile : file holding the tiles, created or overwritten when needed
+     * @param tileSize : width and height of a tile, in pixels
+     * @return : pyramid
+     * @throws IOException : if the source cannot be decoded or the tile file cannot be written
+     */
+    public static TilePyramid open(File source, File tileFile, int tileSize) throws IOException
+    {
+        File parent = tileFile.getAbsoluteFile().getParentFile();
+        if(parent != null)
+            parent.mkdirs();
+        RandomAccessFile file = new RandomAccessFile(tileFile, "rw");
+        try
+        {
+            FileChannel channel = file.getChannel();
+            TilePyramid pyramid = readHeader(file, source, tileSize);
+            if(pyramid != null)
+            {
+                pyramid.map(channel, FileChannel.MapMode.READ_ONLY);
+                return pyramid;
+            }
+            return build(source, file, tileSize);
+        }
+        finally
+        {
+            file.close();               //the mappings stay valid once the file is closed
+        }
+    }
+
+    /**
+     * Reads the header of the tile file.
+     * @param file : tile file
+     * @param source : image the file should hold
+     * @param tileSize : expected tile size
+     * @return : pyramid to map, or null if the file is missing, incomplete or out of date
+     * @throws IOException : on read errors
+     */
+    private static TilePyramid readHeader(RandomAccessFile file, File source, int tileSize) throws IOException
+    {
+        if(file.length() < HEADER_SIZE)
+            return null;
+        file.seek(0);
+        if(file.readInt() != MAGIC || file.readInt() != VERSION || file.readInt() != tileSize)
+            return null;
+        int width = file.readInt();
+        int height = file.readInt();
+        long sourceLength = file.readLong();
+        long sourceModified = file.readLong();
+        if(sourceLength != source.length() || sourceModified != source.lastModified())
+            return null;
+        TilePyramid pyramid = new TilePyramid(width, height, tileSize);
+        return (file.length() == pyramid.getFileLength()) ? pyramid : null;
+    }
+
+    /**
+     * Decodes the source into level 0 and averages every next level, then writes the header.
+     * The header goes last, so an interrupted build is never mistaken for a valid file.
+     * @param source : image
+     * @param file : tile file
+     * @param tileSize : tile size
+     * @return : pyramid, mapped
+     * @throws IOException : if the source cannot be decoded
+     */
+    private static TilePyramid build(File source, RandomAccessFile file, int tileSize) throws IOException
+    {
+        ImageInputStream stream = ImageIO.createImageInputStream(source);
+        if(stream == null)
+            throw new IOException("cannot read " + source);
+        try
+        {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if(!readers.hasNext())
+                throw new IOException("no decoder for " + source);
+            ImageReader reader = readers.next();
+            try
+            {
+                reader.setInput(stream, false, true);
+                TilePyramid pyramid = new TilePyramid(reader.getWidth(0), reader.getHeight(0), tileSize);
+                file.setLength(0);
+                file.setLength(pyramid.getFileLength());
+                pyramid.map(file.getChannel(), FileChannel.MapMode.READ_WRITE);
+                pyramid.cutLevelZero(reader);
+                for(int level = 1; level < pyramid.getLevelCount(); level++)
+                    pyramid.downsample(level);
+
+                file.seek(0);
+                file.writeInt(MAGIC);
+                file.writeInt(VERSION);
+                file.writeInt(tileSize);
+                file.writeInt(pyramid.widths[0]);
+                file.writeInt(pyramid.heights[0]);
+                file.writeLong(source.length());
+                file.writeLong(source.lastModified());
+                return pyramid;
+            }
+            finally
+            {
+                reader.dispose();
+            }
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+
+    /**
+     * Returns the size of the tile file, header included.
+     * @return : in bytes
+     */
+    private long getFileLength()
+    {
+        long length = HEADER_SIZE;
+        for(int level = 0; level < levels.length; level++)
+            length += getLevelLength(level);
+        return length;
+    }
+
+    private long getLevelLength(int level)
+    {
+        return 4L * tilesX[level] * tilesY[level] * tileSize * tileSize;
+    }
+
+    /**
+     * Maps every level of the tile file.
+     * @param channel : channel of the tile file
+     * @param mode : READ_ONLY to view, READ_WRITE to build
+     * @throws IOException : if a level is larger than a mapping allows
+     */
+    private void map(FileChannel channel, FileChannel.MapMode mode) throws IOException
+    {
+        long position = HEADER_SIZE;
+        for(int level = 0; level < levels.length; level++)
+        {
+            long length = getLevelLength(level);
+            if(length > Integer.MAX_VALUE)
+                throw new IOException("level " + level + " holds " + length + " bytes, too large to map");
+            MappedByteBuffer buffer = channel.map(mode, position, length);
+            levels[level] = buffer.asIntBuffer();
+            position += length;
+        }
+    }
+
+    /**
+     * Decodes the source one band of tileSize rows at a time and cuts every band into tiles.
+     * @param reader : decoder positioned on the source
+     * @throws IOException : on decoding errors
+     */
+    private void cutLevelZero(ImageReader reader) throws IOException
+    {
+        int[] tile = new int[tileSize * tileSize];
+        ImageReadParam param = reader.getDefaultReadParam();
+        for(int ty = 0; ty < tilesY[0]; ty++)
+        {
+            int y = ty * tileSize;
+            int bandHeight = Math.min(tileSize, heights[0] - y);
+            param.setSourceRegion(new Rectangle(0, y, widths[0], bandHeight));
+            BufferedImage band = reader.read(0, param);
+            for(int tx = 0; tx < tilesX[0]; tx++)
+            {
+                int x = tx * tileSize;
+                int w = Math.min(tileSize, widths[0] - x);
+                if(w < tileSize || bandHeight < tileSize)
+                    Arrays.fill(tile, 0);
+                band.getRGB(x, 0, w, bandHeight, tile, 0, tileSize);
+                writeTile(0, tx, ty, tile);
+            }
+        }
+    }
+
+    /**
+     * Fills a level by averaging every 2 x 2 block of the previous one, pixels outside the previous
+     * level are left out of the average.
+     * @param level : level to fill, at least 1
+     */
+    private void downsample(int level)
+    {
+        int[][] quad = new int[4][tileSize * tileSize];     //2 x 2 tiles of the previous level
+        int[] tile = new int[tileSize * tileSize];
+        int sourceWidth = widths[level - 1];
+        int sourceHeight = heights[level - 1];
+        for(int ty = 0; ty < tilesY[level]; ty++)
+        {
+            for(int tx = 0; tx < tilesX[level]; tx++)
+            {
+                for(int q = 0; q < 4; q++)
+                {
+                    int sx = 2 * tx + (q & 1);
+                    int sy = 2 * ty + (q >> 1);
+                    if(sx < tilesX[level - 1] && sy < tilesY[level - 1])
+                        readTile(level - 1, sx, sy, quad[q]);
+                }
+                for(int y = 0; y < tileSize; y++)
+                {
+                    for(int x = 0; x < tileSize; x++)
+                    {
+                        int a = 0, r = 0, g = 0, b = 0, n = 0;
+                        for(int k = 0; k < 4; k++)
+                        {
+                            int lx = 2 * x + (k & 1);           //position in the 2 x 2 tiles
+                            int ly = 2 * y + (k >> 1);
+                            if((tx * tileSize + x) * 2 + (k & 1) >= sourceWidth
+                                    || (ty * tileSize + y) * 2 + (k >> 1) >= sourceHeight)
+                                continue;
+                            int quadrant = (lx >= tileSize ? 1 : 0) + (ly >= tileSize ? 2 : 0);
+                            int p = quad[quadrant][(ly % tileSize) * tileSize + (lx % tileSize)];
+                            a += p >>> 24;
+                            r += (p >> 16) & 0xff;
+                            g += (p >> 8) & 0xff;
+                            b += p & 0xff;
+                            n++;
+                        }
+                        tile[y * tileSize + x] = (n == 0) ? 0
+                                : ((a / n) << 24) | ((r / n) << 16) | ((g / n) << 8) | (b / n);
+                    }
+                }
+                writeTile(level, tx, ty, tile);
+            }
+        }
+    }
+
+    private void writeTile(int level, int tx, int ty, int[] tile)
+    {
+        IntBuffer buffer = levels[level].duplicate();
+        buffer.position((ty * tilesX[level] + tx) * tileSize * tileSize);
+        buffer.put(tile, 0, tileSize * tileSize);
+    }
+
+    /**
+     * Copies a tile. Safe to call from several threads.
+     * @param level : level, 0 is the full resolution
+     * @param tx : column of the tile
+     * @param ty : row of the tile
+     * @param tile : destination, tileSize x tileSize ARGB pixels row after row
+     */
+    public void readTile(int level, int tx, int ty, int[] tile)
+    {
+        IntBuffer buffer = levels[level].duplicate();
+        buffer.position((ty * tilesX[level] + tx) * tileSize * tileSize);
+        buffer.get(tile, 0, tileSize * tileSize);
+    }
+
+    public int getTileSize()
+    {
+        return tileSize;
+    }
+
+    public int getLevelCount()
+    {
+        return levels.length;
+    }
+
+    /**
+     * Returns the width of a level.
+     * @param level : level, 0 is the full resolution
+     * @return : in pixels
+     */
+    public int getWidth(int level)
+    {
+        return widths[level];
+    }
+
+    /**
+     * Returns the height of a level.
+     * @param level : level, 0 is the full resolution
+     * @return : in pixels
+     */
+    public int getHeight(int level)
+    {
+        return heights[level];
+    }
+
+    public int getTilesX(int level)
+    {
+        return tilesX[level];
+    }
+
+    public int getTilesY(int level)
+    {
+        return tilesY[level];
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
@@ -0,0 +1,337 @@
+package packagedata;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javafx.application.Platform;
+import javafx.event.EventHandler;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+
+/**
+ * Pans and zooms a large image through its TilePyramid. Every redraw picks the level closest to the
+ * zoom and draws only the tiles intersecting the viewport, the tiles are kept in a least recently
+ * used cache sized from the viewport, so memory stays flat whatever the size of the image. The page
+ * opens fitted to the height of the viewer. Dragging or scrolling pans, scrolling with control down
+ * zooms.
+ * @author patrickspensieri
+ */
+public class TiledImageViewer extends Region
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    public static final int TILE_SIZE = 256;            //in pixels
+    private static final int MAX_TILES = 96;            //tiles kept decoded at least, 256 KB each
+    private static final double MAX_ZOOM = 4;           //screen pixels per image pixel
+    private static final double ZOOM_PER_SCROLL = 1.0015;   //zoom factor per scroll unit
+
+    private final Canvas canvas = new Canvas();
+    private final Map<String, TilePyramid> pyramids = new HashMap<String, TilePyramid>();   //opened, by source
+    private TilePyramid pyramid;                        //shown, null while loading
+    private String pending;                             //source being opened
+    private String message = "";                        //shown instead of the image while loading
+
+    private final LinkedHashMap<Long, WritableImage> tiles;     //access ordered, eldest first
+    private int maxTiles = MAX_TILES;                   //twice the tiles of the viewport, at least MAX_TILES
+    private int[] tilePixels;
+
+    private double zoom = 1;                            //screen pixels per level 0 pixel
+    private double offsetX, offsetY;                    //level 0 pixel shown at the top left corner
+    private boolean fitPending;                         //fit the height at the next layout
+    private double dragX, dragY;
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    public TiledImageViewer()
+    {
+        tiles = new LinkedHashMap<Long, WritableImage>(MAX_TILES, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, WritableImage> eldest)
+            {
+                return size() > maxTiles;
+            }
+        };
+        getChildren().add(canvas);
+
+        setOnMousePressed(new EventHandler<MouseEvent>()
+        {
+            @Override
+            public void handle(MouseEvent e)
+            {
+                dragX = e.getX();
+                dragY = e.getY();
+            }
+        });
+        setOnMouseDragged(new EventHandler<MouseEvent>()
+        {
+            @Override
+            public void handle(MouseEvent e)
+            {
+                pan(dragX - e.getX(), dragY - e.getY());
+                dragX = e.getX();
+                dragY = e.getY();
+            }
+        });
+        setOnScroll(new EventHandler<ScrollEvent>()
+        {
+            @Override
+            public void handle(ScrollEvent e)
+            {
+                if(e.isControlDown())
+                    zoomAt(e.getX(), e.getY(), Math.pow(ZOOM_PER_SCROLL, e.getDeltaY()));
+                else
+                    pan(-e.getDeltaX(), -e.getDeltaY());
+                e.consume();
+            }
+        });
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // USER INTERFACE METHODS //////////////////////////////////////////////////
+    /**
+     * Shows an image, fitted to the height of the viewer. The pyramid is opened (and built the first
+     * time) on a worker thread, a pyramid already opened by this viewer is shown at once.
+     * @param source : image file
+     * @param tileFile : file holding its tiles
+     */
+    public void show(final File source, final File tileFile)
+    {
+        final String key = source.getAbsolutePath();
+        pending = key;
+        fitPending = true;
+        TilePyramid opened = pyramids.get(key);
+        if(opened != null)
+        {
+            setPyramid(opened);
+            return;
+        }
+
+        setPyramid(null);
+        message = "Loading " + source.getName() + "...";
+        redraw();
+        Thread loader = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                TilePyramid loaded = null;
+                String error = null;
+                try
+                {
+                    loaded = TilePyramid.open(source, tileFile, TILE_SIZE);
+                }
+                catch(IOException e)
+                {
+                    error = "Cannot open " + source.getName() + " : " + e.getMessage();
+                }
+                final TilePyramid result = loaded;
+                final String failure = error;
+                Platform.runLater(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        if(result != null)
+                            pyramids.put(key, result);
+                        if(!key.equals(pending))
+                            return;             //another page was asked for meanwhile
+                        if(result != null)
+                            setPyramid(result);
+                        else
+                        {
+                            message = failure;
+                            redraw();
+                        }
+                    }
+                });
+            }
+        }, "tile pyramid");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Replaces the image shown, the decoded tiles of the previous one are dropped.
+     * @param pyramid : pyramid, null to show the message
+     */
+    private void setPyramid(TilePyramid pyramid)
+    {
+        this.pyramid = pyramid;
+        tiles.clear();
+        if(pyramid != null && fitPending && getHeight() > 0)
+            fitHeight();
+        redraw();
+    }
+
+    @Override
+    protected void layoutChildren()
+    {
+        canvas.setWidth(getWidth());
+        canvas.setHeight(getHeight());
+        if(pyramid != null && fitPending && getHeight() > 0)
+            fitHeight();
+        else
+            clampOffsets();
+        redraw();
+    }
+
+    /**
+     * Zooms so the whole height of the image fits the viewer.
+     */
+    private void fitHeight()
+    {
+        fitPending = false;
+        zoom = getHeight() / pyramid.getHeight(0);
+        offsetX = 0;
+        offsetY = 0;
+        clampOffsets();
+    }
+
+    /**
+     * Moves the view.
+     * @param dx : in screen pixels
+     * @param dy : in screen pixels
+     */
+    private void pan(double dx, double dy)
+    {
+        offsetX += dx / zoom;
+        offsetY += dy / zoom;
+        clampOffsets();
+        redraw();
+    }
+
+    /**
+     * Changes the zoom, keeping the image pixel under a screen point in place.
+     * @param x : screen point
+     * @param y : screen point
+     * @param factor : zoom multiplier
+     */
+    private void zoomAt(double x, double y, double factor)
+    {
+        if(pyramid == null)
+            return;
+        double minZoom = Math.min(getWidth() / pyramid.getWidth(0), getHeight() / pyramid.getHeight(0));
+        double newZoom = Math.max(Math.min(zoom * factor, MAX_ZOOM), Math.min(minZoom, 1));
+        offsetX += x / zoom - x / newZoom;
+        offsetY += y / zoom - y / newZoom;
+        zoom = newZoom;
+        clampOffsets();
+        redraw();
+    }
+
+    /**
+     * Keeps the image inside the viewer, an image smaller than the viewer is centred.
+     */
+    private void clampOffsets()
+    {
+        if(pyramid == null)
+            return;
+        offsetX = clamp(offsetX, pyramid.getWidth(0), getWidth() / zoom);
+        offsetY = clamp(offsetY, pyramid.getHeight(0), getHeight() / zoom);
+    }
+
+    /**
+     * Clamps an offset along one axis.
+     * @param offset : in image pixels
+     * @param size : size of the image, in image pixels
+     * @param visible : size of the viewer, in image pixels
+     * @return : clamped offset
+     */
+    private static double clamp(double offset, double size, double visible)
+    {
+        if(size <= visible)
+            return -(visible - size) / 2;
+        return Math.max(0, Math.min(offset, size - visible));
+    }
+
+    /**
+     * Draws the tiles intersecting the viewer, from the level closest to the zoom.
+     */
+    private void redraw()
+    {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.setFill(Color.BLACK);
+        gc.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        if(pyramid == null)
+        {
+            gc.setFill(Color.WHITE);
+            gc.fillText(message, 20, 30);
+            return;
+        }
+
+        //level whose pixels are the closest to, but not smaller than, the screen pixels
+        int level = 0;
+        while(level + 1 < pyramid.getLevelCount() && zoom * (1 << (level + 1)) <= 1)
+            level++;
+        double tileExtent = (double)TILE_SIZE * (1 << level);     //in level 0 pixels
+        double drawSize = tileExtent * zoom;
+        int firstX = Math.max(0, (int)Math.floor(offsetX / tileExtent));
+        int firstY = Math.max(0, (int)Math.floor(offsetY / tileExtent));
+        int lastX = Math.min(pyramid.getTilesX(level) - 1, (int)Math.floor((offsetX + getWidth() / zoom) / tileExtent));
+        int lastY = Math.min(pyramid.getTilesY(level) - 1, (int)Math.floor((offsetY + getHeight() / zoom) / tileExtent));
+        setMaxTiles(2 * Math.max(0, lastX - firstX + 1) * Math.max(0, lastY - firstY + 1));
+        for(int ty = firstY; ty <= lastY; ty++)
+        {
+            for(int tx = firstX; tx <= lastX; tx++)
+            {
+                double x = Math.floor((tx * tileExtent - offsetX) * zoom);
+                double y = Math.floor((ty * tileExtent - offsetY) * zoom);
+                //one extra pixel hides the seams between scaled tiles
+                gc.drawImage(getTile(level, tx, ty), x, y, Math.ceil(drawSize) + 1, Math.ceil(drawSize) + 1);
+            }
+        }
+    }
+
+    /**
+     * Sizes the tile cache for the viewport, so a redraw never evicts tiles it still draws, and drops
+     * the least recently used tiles above the new size.
+     * @param viewportTiles : tiles the cache must hold, at least MAX_TILES are kept
+     */
+    private void setMaxTiles(int viewportTiles)
+    {
+        maxTiles = Math.max(MAX_TILES, viewportTiles);
+        Iterator<Long> eldest = tiles.keySet().iterator();
+        for(int extra = tiles.size() - maxTiles; extra > 0; extra--)
+        {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Returns a decoded tile, copying it from the pyramid on a miss.
+     * @param level : level
+     * @param tx : column
+     * @param ty : row
+     * @return : tile image
+     */
+    private WritableImage getTile(int level, int tx, int ty)
+    {
+        long key = ((long)level << 48) | ((long)ty << 24) | tx;
+        WritableImage tile = tiles.get(key);
+        if(tile == null)
+        {
+            if(tilePixels == null)
+                tilePixels = new int[TILE_SIZE * TILE_SIZE];
+            pyramid.readTile(level, tx, ty, tilePixels);
+            tile = new WritableImage(TILE_SIZE, TILE_SIZE);
+            tile.getPixelWriter().setPixels(0, 0, TILE_SIZE, TILE_SIZE, PixelFormat.getIntArgbInstance(),
+                    tilePixels, 0, TILE_SIZE);
+            tiles.put(key, tile);
+        }
+        return tile;
+    }
+
+    // END USER INTERFACE METHODS //////////////////////////////////////////////
+}
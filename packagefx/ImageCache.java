@@ -0,0 +1,178 @@
+package packagefx;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.image.Image;
+
+/**
+ * Shared cache of decoded images. Images are decoded in the background and downsampled while decoding
+ * to the size they are displayed at, so a large image never sits in memory at full resolution. Entries
+ * are kept in least recently used order and evicted once their decoded size (4 bytes per pixel)
+ * exceeds the byte budget. Requested sizes are rounded up to a multiple of SIZE_STEP, so small window
+ * resizes reuse the same entry.
+ * @author patrickspensieri
+ */
+public class ImageCache
+{
+    // DATA FIELDS ////////////////////////////////////////////////////////////////////
+    public static final long DEFAULT_BYTE_BUDGET = 64L * 1024 * 1024;
+    private static final int SIZE_STEP = 64;                //in pixels
+    private static ImageCache shared;
+
+    private final long byteBudget;
+    private long bytes;                                     //decoded size of every entry
+    private final LinkedHashMap<String, Entry> entries;     //access ordered, eldest first
+
+    private static class Entry
+    {
+        final Image image;
+        long bytes;
+
+        Entry(Image image, long bytes)
+        {
+            this.image = image;
+            this.bytes = bytes;
+        }
+    }
+
+    // END DATA FIELDS ////////////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) /////////////////////////////////////////////////////////////////
+    /**
+     * Creates an empty cache.
+     * @param byteBudget : maximum decoded size of the cached images, in bytes
+     */
+    public ImageCache(long byteBudget)
+    {
+        this.byteBudget = byteBudget;
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    }
+
+    // END CONSTRUCTOR(S) /////////////////////////////////////////////////////////////
+
+    // DATA METHODS ///////////////////////////////////////////////////////////////////
+    /**
+     * Returns the cache shared by the whole application, created on first use.
+     * @return : shared cache
+     */
+    public static ImageCache getShared()
+    {
+        if(shared == null)
+            shared = new ImageCache(DEFAULT_BYTE_BUDGET);
+        return shared;
+    }
+
+    /**
+     * Returns an image decoded to fit within a size, preserving its ratio. A miss starts decoding in
+     * the background and returns at once : the image shows when its progress reaches 1.
+     * @param url : url of the image, e.g. "file:src/images/iPad.png"
+     * @param width : display width, in pixels, 0 to derive it from the height
+     * @param height : display height, in pixels, 0 to derive it from the width
+     * @return : image, possibly still loading
+     */
+    public Image get(String url, double width, double height)
+    {
+        int requestedWidth = roundUp(width);
+        int requestedHeight = roundUp(height);
+        final String key = url + "@" + requestedWidth + "x" + requestedHeight;
+        Entry entry = entries.get(key);
+        if(entry != null)
+            return entry.image;
+
+        final Image image = new Image(url, requestedWidth, requestedHeight, true, true, true);
+        //the decoded size is only known once loaded, until then the requested size bounds it
+        final Entry created = new Entry(image, 4L * requestedWidth * requestedHeight);
+        entries.put(key, created);
+        bytes += created.bytes;
+        image.progressProperty().addListener(new ChangeListener<Number>()
+        {
+            @Override
+            public void changed(ObservableValue<? extends Number> o, Number oldVal, Number newVal)
+            {
+                if(newVal.doubleValue() < 1 || entries.get(key) != created)
+                    return;
+                if(image.isError())
+                    remove(key);
+                else
+                {
+                    long decoded = 4L * (long)image.getWidth() * (long)image.getHeight();
+                    bytes += decoded - created.bytes;
+                    created.bytes = decoded;
+                    evict();
+                }
+            }
+        });
+        evict();
+        return image;
+    }
+
+    /**
+     * Rounds a display size up to the next multiple of SIZE_STEP.
+     * @param size : in pixels
+     * @return : rounded size, 0 if size is not positive
+     */
+    private static int roundUp(double size)
+    {
+        if(size <= 0)
+            return 0;
+        return (int)Math.ceil(size / SIZE_STEP) * SIZE_STEP;
+    }
+
+    /**
+     * Drops the least recently used entries until the decoded size fits the budget. The most recent
+     * entry is always kept.
+     */
+    private void evict()
+    {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while(bytes > byteBudget && entries.size() > 1 && it.hasNext())
+        {
+            bytes -= it.next().getValue().bytes;
+            it.remove();
+        }
+    }
+
+    /**
+     * Removes an entry, e.g. an image that failed to load.
+     * @param key : key of the entry
+     */
+    private void remove(String key)
+    {
+        Entry entry = entries.remove(key);
+        if(entry != null)
+            bytes -= entry.bytes;
+    }
+
+    /**
+     * Removes every entry, images still displayed stay valid.
+     */
+    public void clear()
+    {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Returns the decoded size of the cached images.
+     * @return : in bytes
+     */
+    public long getBytes()
+    {
+        return bytes;
+    }
+
+    public long getByteBudget()
+    {
+        return byteBudget;
+    }
+
+    public int size()
+    {
+        return entries.size();
+    }
+
+    // END DATA METHODS ///////////////////////////////////////////////////////////////
+}
@@ -1,5 +1,6 @@
 package packagefx;
 
+import java.io.File;
 import javafx.application.Application;
 import static javafx.application.Application.launch;
 import javafx.event.ActionEvent;
@@ -13,11 +14,7 @@ import javafx.scene.control.Menu;
 import javafx.scene.control.MenuBar;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.MenuItemBuilder;
-import javafx.scene.control.ScrollPane;
-import javafx.scene.control.ScrollPane.ScrollBarPolicy;
 import javafx.scene.control.TitledPane;
-import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
@@ -26,6 +23,7 @@ import packagedata.AbstractData;
 import packagedata.IGSData;
 import packagedata.LorentzForceData;
 import packagedata.ResistorsInParallelData;
+import packagedata.TiledImageViewer;
 import static packagefx.InterfaceFX.ACCORDION_HEIGHT;
 import static packagefx.InterfaceFX.ACCORDION_WIDTH;
 import static packagefx.InterfaceFX.INSET_VALUE;
@@ -55,6 +53,7 @@ public class LearningSimulator extends Application implements InterfaceFX
     private MenuItem[] theoryMIArray;
     
     private static Accordion accordion;
+    private static TiledImageViewer theoryViewer;       //created at the first theory launch, reused afterwards
     private TitledPane[] subjectTPArray;
     private Button[] subjectBArray;
     
@@ -63,6 +62,10 @@ public class LearningSimulator extends Application implements InterfaceFX
     // DATA FIELDS ////////////////////////////////////////////////////////////////////
     protected static AbstractData dataClass;
     private int launchData;
+    private SceneCache sceneCache;              //built data classes, reused when a subject is launched again
+    //tile pyramids of the theory images, cut at the first launch of each page
+    private static final File TILE_DIRECTORY = new File(System.getProperty("java.io.tmpdir"), "learning-simulator-tiles");
+    private static final double MEMORY_THRESHOLD = 0.75;     //fraction of the heap above which the cache is trimmed
 
     //note : adding another entry to the subjectNameArray automatically builds according 
     //       menus and menuItems for the menuBar, and according titledPanes and buttons
@@ -83,6 +86,14 @@ public class LearningSimulator extends Application implements InterfaceFX
         stage.show();
         borderPane.setTop(buildMenuBar());  
         borderPane.setCenter(buildAccordionMenu());
+        sceneCache = new SceneCache(getNumberSubjects(), new SceneCache.Factory()
+        {
+            @Override
+            public AbstractData create(int subject)
+            {
+                return createDataClass(subject);
+            }
+        });
     }
 
     /**
@@ -241,75 +252,64 @@ public class LearningSimulator extends Application implements InterfaceFX
     }
     
     /**
-     * Resets the center of the borderPane back to the appropriate dataClass.
+     * Resets the center of the borderPane back to the current dataClass, with the state it was left in.
      */
     public static void exitHelp()
     {
-        if(LearningSimulator.getDataClass() instanceof IGSData)
-            borderPane.setCenter(new IGSData().buildGridPane());
-        else if(LearningSimulator.getDataClass() instanceof LorentzForceData)
-            borderPane.setCenter(new LorentzForceData().buildGridPane());
-        else if(LearningSimulator.getDataClass() instanceof ResistorsInParallelData)
-            borderPane.setCenter(new ResistorsInParallelData().buildGridPane());
+        if(dataClass != null)
+            borderPane.setCenter(dataClass.buildGridPane());
     }
 
     /**
-     * Launches and builds the data class selected.
+     * Launches the data class selected, reusing it from the sceneCache when it was already built.
      * @param i : indicator of data class to be called
      */
     private void launchDataClass(int i)
     {   
-        // note : buildGridPane() is public in AbstractData and protected in each of the classes 
+        AbstractData data = sceneCache.get(i);
+        if(data == null)
+            return;
+        
+        borderPane.setLeft(null);
+        scene.setFill(Color.WHITESMOKE);
+        dataClass = data;
+        // note : buildGridPane() only builds the scene the first time, then returns it as it was left
+        borderPane.setCenter(dataClass.buildGridPane());
+        sceneCache.trimIfMemoryLow(MEMORY_THRESHOLD);
+    }
+    
+    /**
+     * Creates the data class selected, called by the sceneCache on a miss.
+     * @param i : indicator of data class to be created
+     * @return : new data class, null for an invalid index
+     */
+    private AbstractData createDataClass(int i)
+    {
         switch (i) 
         {
-            case 0: {
-                        borderPane.setLeft(null);
-                        scene.setFill(Color.WHITESMOKE);
-                        dataClass = new IGSData();
-                        borderPane.setCenter(dataClass.buildGridPane());
-                    }
-                    break;
-            case 1: {
-                        borderPane.setLeft(null);
-                        scene.setFill(Color.WHITESMOKE);
-                        dataClass = new LorentzForceData();
-                        borderPane.setCenter(dataClass.buildGridPane());
-                    }
-                    break;
-            case 2: {
-                        borderPane.setLeft(null);
-                        scene.setFill(Color.WHITESMOKE);
-                        dataClass = new ResistorsInParallelData();
-                        borderPane.setCenter(dataClass.buildGridPane());
-                    }
-                    break;
+            case 0: return new IGSData();
+            case 1: return new LorentzForceData();
+            case 2: return new ResistorsInParallelData();
            
             default: System.out.println("Invalid index (from launchData method)");
-                     break;
+                     return null;
         }  
     }
     
     /**
-     * Launches the theory window for a particular class. PNG image contained in a scrollPane so
-     * content remains visible when window is resized.
+     * Launches the theory window for a particular class. The PNG image is shown by the theoryViewer,
+     * which pans and zooms through a tile pyramid of the image so only the visible tiles are decoded.
+     * The pyramid is cut once into a tile file and reused on later launches.
      * @param i : indicator of which theory image to be called
      */
     public static void launchTheory(int i)
     {
         scene.setFill(Color.BLACK);
-        ImageView iv = new ImageView();
-        //temporary placeholder so sizes can be derived properly
-        iv.setImage(new Image("file:IGSHelp.png", true));
-        iv.setFitWidth(iv.getImage().getWidth());
-        
-        //initialize scrollPane that contains the theory image
-        ScrollPane scrollPane = new ScrollPane();
-        scrollPane.setHbarPolicy(ScrollBarPolicy.AS_NEEDED);
-        scrollPane.setVbarPolicy(ScrollBarPolicy.AS_NEEDED);
-        scrollPane.setPrefHeight(borderPane.getHeight() - menuBar.getHeight());
-        scrollPane.setStyle("-fx-background-color:black; -fx-border-color:black;");
-        borderPane.setMargin(scrollPane, new Insets(5, 5, 5, 5));
-        borderPane.setAlignment(scrollPane, Pos.CENTER);
+        if(theoryViewer == null)
+            theoryViewer = new TiledImageViewer();
+        theoryViewer.setPrefHeight(borderPane.getHeight() - menuBar.getHeight());
+        borderPane.setMargin(theoryViewer, new Insets(5, 5, 5, 5));
+        borderPane.setAlignment(theoryViewer, Pos.CENTER);
         
         //build the back button to return to the accordion menu
         final Button backButton = new Button("Back");
@@ -327,37 +327,22 @@ public class LearningSimulator extends Application implements InterfaceFX
             }
         });
 
+        String theoryName;
         switch (i) 
         {
-            case 0: {
-                        iv.setImage(new Image("file:src/images/IGSTheory.png", true));
-                        iv.setFitHeight(borderPane.getHeight());
-                        iv.setPreserveRatio(true);
-                        scrollPane.setContent(iv);
-                        borderPane.setCenter(scrollPane);
-                    }
+            case 0: theoryName = "IGSTheory";
                     break;
-            case 1: {
-                        iv.setImage(new Image("file:src/images/LorentzForceTheory.png", true));
-                        iv.setFitHeight(borderPane.getHeight());
-                        iv.setPreserveRatio(true);
-                        scrollPane.setContent(iv);
-                        borderPane.setCenter(scrollPane);
-                    }
+            case 1: theoryName = "LorentzForceTheory";
                     break;
-            case 2: {
-                        iv.setImage(new Image("file:src/images/ResistorsInParallelTheory.png", true));
-                        iv.setFitHeight(borderPane.getHeight());
-                        iv.setPreserveRatio(true);
-                        scrollPane.setContent(iv);
-                        borderPane.setCenter(scrollPane);
-                    }
+            case 2: theoryName = "ResistorsInParallelTheory";
                     break;
 
             //error handling
             default: System.out.println("Invalid index (from launchData method)");
-                     break;
+                     return;
         }  
+        theoryViewer.show(new File("src/images/" + theoryName + ".png"), new File(TILE_DIRECTORY, theoryName + ".tiles"));
+        borderPane.setCenter(theoryViewer);
     }
     
     /**
@@ -0,0 +1,128 @@
+package packagefx;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import packagedata.AbstractData;
+
+/**
+ * Bounded least recently used cache of built data classes, keyed by subject. Returning to a subject
+ * reuses its scene graph, charts and bindings as they were left, in constant time. The least recently
+ * used data class is disposed when the cache is full, and the cache can shrink to the current subject
+ * when the heap runs low.
+ * @author patrickspensieri
+ */
+public class SceneCache
+{
+    // DATA FIELDS ////////////////////////////////////////////////////////////////////
+    /**
+     * Builds the data class of a subject on a cache miss.
+     */
+    public interface Factory
+    {
+        AbstractData create(int subject);
+    }
+
+    private final Factory factory;
+    private int capacity;
+    private final LinkedHashMap<Integer, AbstractData> entries;     //access ordered, eldest first
+
+    // END DATA FIELDS ////////////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) /////////////////////////////////////////////////////////////////
+    /**
+     * Creates an empty cache.
+     * @param capacity : maximum number of data classes kept, at least 1
+     * @param factory : builds the data class of a subject
+     */
+    public SceneCache(int capacity, Factory factory)
+    {
+        this.capacity = Math.max(1, capacity);
+        this.factory = factory;
+        entries = new LinkedHashMap<Integer, AbstractData>(16, 0.75f, true);
+    }
+
+    // END CONSTRUCTOR(S) /////////////////////////////////////////////////////////////
+
+    // DATA METHODS ///////////////////////////////////////////////////////////////////
+    /**
+     * Returns the data class of a subject, building it on a miss and evicting the least recently
+     * used one when the cache is full.
+     * @param subject : index of the subject
+     * @return : data class, or null if the factory has none for this subject
+     */
+    public AbstractData get(int subject)
+    {
+        AbstractData data = entries.get(subject);
+        if(data == null)
+        {
+            data = factory.create(subject);
+            if(data == null)
+                return null;
+            entries.put(subject, data);
+            trimTo(capacity);
+        }
+        return data;
+    }
+
+    /**
+     * Disposes the least recently used data classes until at most size remain.
+     * @param size : number of data classes kept
+     */
+    public void trimTo(int size)
+    {
+        Iterator<Map.Entry<Integer, AbstractData>> it = entries.entrySet().iterator();
+        while(entries.size() > size && it.hasNext())
+        {
+            AbstractData eldest = it.next().getValue();
+            it.remove();
+            eldest.dispose();
+        }
+    }
+
+    /**
+     * Keeps only the most recently used data class when the used heap exceeds a fraction of the
+     * maximum heap.
+     * @param fraction : threshold, from 0 to 1
+     * @return : true if data classes were disposed
+     */
+    public boolean trimIfMemoryLow(double fraction)
+    {
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        if(used <= fraction * runtime.maxMemory() || entries.size() <= 1)
+            return false;
+        trimTo(1);
+        return true;
+    }
+
+    /**
+     * Disposes every data class.
+     */
+    public void clear()
+    {
+        trimTo(0);
+    }
+
+    /**
+     * Changes the maximum number of data classes kept, disposing the extra ones.
+     * @param capacity : at least 1
+     */
+    public void setCapacity(int capacity)
+    {
+        this.capacity = Math.max(1, capacity);
+        trimTo(this.capacity);
+    }
+
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    public int size()
+    {
+        return entries.size();
+    }
+
+    // END DATA METHODS ///////////////////////////////////////////////////////////////
+}
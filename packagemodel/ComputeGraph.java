@@ -0,0 +1,221 @@
+package packagemodel;
+
+import java.util.Arrays;
+
+/**
+ * Small graph of double valued quantities with explicit dependencies. Inputs are set from outside,
+ * derived nodes are computed by a Function from the nodes they declare. A node may only depend on
+ * nodes added before it, so ids are always in topological order.
+ * Setting an input marks every node downstream of it dirty in one pass, and a dirty node is recomputed
+ * only when it is read, at most once per change of its inputs. Values are kept as primitives in a
+ * single array. An Observer can be attached to a node to learn when it becomes dirty, which is
+ * how the user interface is notified without any listener inside the graph.
+ * Not thread safe, every call is expected on the same thread.
+ * @author patrickspensieri
+ */
+public class ComputeGraph
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    private static final int INITIAL_CAPACITY = 8;
+    private static final int[] NONE = new int[0];
+
+    private double[] values;
+    private boolean[] dirty;
+    private Function[] functions;               //null for inputs
+    private int[][] dependencies;
+    private int[][] dependents;                 //reverse edges, dependents[i][0..dependentCount[i]-1]
+    private int[] dependentCount;
+    private Observer[] observers;
+    private int size;
+    private int[] stack;                        //work stack of set()
+    private int recomputations;                 //number of Function calls since creation
+
+    /**
+     * Computes the value of a derived node, reading its dependencies through graph.get().
+     */
+    public interface Function
+    {
+        public double compute(ComputeGraph graph);
+    }
+
+    /**
+     * Notified when a node goes from clean to dirty.
+     */
+    public interface Observer
+    {
+        public void nodeInvalidated(int node);
+    }
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    public ComputeGraph()
+    {
+        values = new double[INITIAL_CAPACITY];
+        dirty = new boolean[INITIAL_CAPACITY];
+        functions = new Function[INITIAL_CAPACITY];
+        dependencies = new int[INITIAL_CAPACITY][];
+        dependents = new int[INITIAL_CAPACITY][];
+        dependentCount = new int[INITIAL_CAPACITY];
+        observers = new Observer[INITIAL_CAPACITY];
+        stack = new int[INITIAL_CAPACITY];
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    /**
+     * Adds an input node.
+     * @param value : initial value
+     * @return : id of the node
+     */
+    public int addInput(double value)
+    {
+        int id = allocate();
+        values[id] = value;
+        dependencies[id] = NONE;
+        return id;
+    }
+
+    /**
+     * Adds a derived node, dirty until it is first read.
+     * @param function : computes the value of the node
+     * @param nodeDependencies : ids of the nodes read by function, all previously added
+     * @return : id of the node
+     */
+    public int addNode(Function function, int... nodeDependencies)
+    {
+        for(int d : nodeDependencies)
+        {
+            if(d < 0 || d >= size)
+                throw new IllegalArgumentException("Unknown dependency : " + d);
+        }
+        int id = allocate();
+        functions[id] = function;
+        dependencies[id] = nodeDependencies.clone();
+        dirty[id] = true;
+        for(int d : dependencies[id])
+        {
+            //a dependency listed twice is only linked once
+            if(dependentCount[d] > 0 && dependents[d][dependentCount[d] - 1] == id)
+                continue;
+            if(dependents[d] == null)
+                dependents[d] = new int[2];
+            else if(dependentCount[d] == dependents[d].length)
+                dependents[d] = Arrays.copyOf(dependents[d], dependentCount[d] * 2);
+            dependents[d][dependentCount[d]++] = id;
+        }
+        return id;
+    }
+
+    /**
+     * Sets the value of an input and marks everything downstream of it dirty. Nothing happens
+     * if the value does not change.
+     * @param input : id of an input node
+     * @param value : new value
+     */
+    public void set(int input, double value)
+    {
+        if(functions[input] != null)
+            throw new IllegalArgumentException("Node " + input + " is not an input");
+        if(Double.doubleToLongBits(values[input]) == Double.doubleToLongBits(value))
+            return;
+        values[input] = value;
+
+        int top = 0;
+        stack[top++] = input;
+        while(top > 0)
+        {
+            int node = stack[--top];
+            for(int i = 0; i < dependentCount[node]; i++)
+            {
+                int next = dependents[node][i];
+                //an already dirty node has already propagated to its own dependents
+                if(dirty[next])
+                    continue;
+                dirty[next] = true;
+                stack[top++] = next;
+                if(observers[next] != null)
+                    observers[next].nodeInvalidated(next);
+            }
+        }
+    }
+
+    /**
+     * Returns the value of a node, recomputing it (and its dirty dependencies) first if needed.
+     * @param node : id
+     * @return : value
+     */
+    public double get(int node)
+    {
+        if(dirty[node])
+        {
+            values[node] = functions[node].compute(this);
+            dirty[node] = false;
+            recomputations++;
+        }
+        return values[node];
+    }
+
+    /**
+     * Sets the observer of a node, replacing the previous one.
+     * @param node : id
+     * @param observer : notified when the node becomes dirty, null to remove it
+     */
+    public void setObserver(int node, Observer observer)
+    {
+        observers[node] = observer;
+    }
+
+    /**
+     * Returns true if the node will be recomputed on its next read.
+     * @param node : id
+     * @return : dirty flag
+     */
+    public boolean isDirty(int node)
+    {
+        return dirty[node];
+    }
+
+    /**
+     * Returns the number of nodes.
+     * @return : size
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the number of times a node function was called since the graph was created.
+     * @return : recomputations
+     */
+    public int getRecomputationCount()
+    {
+        return recomputations;
+    }
+
+    /**
+     * Reserves the next id, growing the arrays when full.
+     * @return : id
+     */
+    private int allocate()
+    {
+        if(size == values.length)
+        {
+            int capacity = size * 2;
+            values = Arrays.copyOf(values, capacity);
+            dirty = Arrays.copyOf(dirty, capacity);
+            functions = Arrays.copyOf(functions, capacity);
+            dependencies = Arrays.copyOf(dependencies, capacity);
+            dependents = Arrays.copyOf(dependents, capacity);
+            dependentCount = Arrays.copyOf(dependentCount, capacity);
+            observers = Arrays.copyOf(observers, capacity);
+        }
+        if(stack.length < size + 1)
+            stack = Arrays.copyOf(stack, values.length);
+        return size++;
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
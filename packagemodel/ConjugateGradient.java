@@ -0,0 +1,125 @@
+package packagemodel;
+
+/**
+ * Conjugate gradient solver for symmetric positive definite sparse systems, with a Jacobi (diagonal)
+ * preconditioner. The work vectors are kept between solves of the same size.
+ * @author patrickspensieri
+ */
+public class ConjugateGradient
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    private double tolerance = 1.0e-10;         //relative to the norm of the right-hand side
+    private int maxIterations = 0;              //0 for 10 times the size of the system
+
+    private double[] residual, direction, product, preconditioned, inverseDiagonal;
+    private boolean converged;
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    /**
+     * Solves A x = b, starting from the values already in x.
+     * @param matrix : symmetric positive definite matrix
+     * @param b : right-hand side
+     * @param x : initial guess, overwritten with the solution
+     * @return : number of iterations
+     */
+    public int solve(SparseMatrix matrix, double[] b, double[] x)
+    {
+        int n = matrix.size();
+        allocate(n);
+        matrix.getDiagonal(inverseDiagonal);
+        for(int i = 0; i < n; i++)
+            inverseDiagonal[i] = (inverseDiagonal[i] != 0) ? 1.0 / inverseDiagonal[i] : 1.0;
+
+        double bNorm = Math.sqrt(dot(b, b, n));
+        converged = true;
+        if(bNorm == 0)
+        {
+            for(int i = 0; i < n; i++)
+                x[i] = 0;
+            return 0;
+        }
+        double limit = tolerance * bNorm;
+
+        matrix.multiply(x, product);
+        for(int i = 0; i < n; i++)
+        {
+            residual[i] = b[i] - product[i];
+            preconditioned[i] = inverseDiagonal[i] * residual[i];
+            direction[i] = preconditioned[i];
+        }
+        double rz = dot(residual, preconditioned, n);
+        int iterationLimit = (maxIterations > 0) ? maxIterations : 10 * n + 10;
+
+        int iteration = 0;
+        while(Math.sqrt(dot(residual, residual, n)) > limit)
+        {
+            if(iteration == iterationLimit)
+            {
+                converged = false;
+                break;
+            }
+            iteration++;
+            matrix.multiply(direction, product);
+            double alpha = rz / dot(direction, product, n);
+            for(int i = 0; i < n; i++)
+            {
+                x[i] += alpha * direction[i];
+                residual[i] -= alpha * product[i];
+                preconditioned[i] = inverseDiagonal[i] * residual[i];
+            }
+            double rzNew = dot(residual, preconditioned, n);
+            double beta = rzNew / rz;
+            rz = rzNew;
+            for(int i = 0; i < n; i++)
+                direction[i] = preconditioned[i] + beta * direction[i];
+        }
+        return iteration;
+    }
+
+    /**
+     * Sets the stopping criteria.
+     * @param tolerance : residual norm relative to the norm of b
+     * @param maxIterations : iteration limit, 0 for 10 times the size of the system
+     */
+    public void setStoppingCriteria(double tolerance, int maxIterations)
+    {
+        this.tolerance = tolerance;
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * Returns true if the last solve reached the tolerance.
+     * @return : converged
+     */
+    public boolean isConverged()
+    {
+        return converged;
+    }
+
+    private static double dot(double[] u, double[] v, int n)
+    {
+        double sum = 0;
+        for(int i = 0; i < n; i++)
+            sum += u[i] * v[i];
+        return sum;
+    }
+
+    /**
+     * Allocates the work vectors when the size changes.
+     * @param n : size of the system
+     */
+    private void allocate(int n)
+    {
+        if(residual != null && residual.length == n)
+            return;
+        residual = new double[n];
+        direction = new double[n];
+        product = new double[n];
+        preconditioned = new double[n];
+        inverseDiagonal = new double[n];
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
@@ -0,0 +1,206 @@
+package packagemodel;
+
+import java.util.Arrays;
+
+/**
+ * Solution of an ODE integration stored in growable primitive buffers : the time and state of every
+ * accepted step, plus the dense output polynomial of every step so the state can be sampled at any time.
+ * @author patrickspensieri
+ */
+public class DenseTrajectory
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    private static final int INITIAL_CAPACITY = 64;
+    static final int COEFFICIENTS = 5;          //dense output coefficients per state variable
+
+    private final int dimension;
+    private double[] times;                     //times[k] = start of step k, times[steps] = end of last step
+    private double[] states;                    //states[k*dimension + i] = y_i at times[k]
+    private double[] coefficients;              //dense output of step k, COEFFICIENTS*dimension values
+    private int steps;                          //number of stored steps
+    private double endTime;                     //may lie before times[steps] when an event cut the last step
+    private int cursor;                         //last step found by sample(), speeds up monotonic sampling
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    public DenseTrajectory(int dimension)
+    {
+        this.dimension = dimension;
+        times = new double[INITIAL_CAPACITY + 1];
+        states = new double[(INITIAL_CAPACITY + 1) * dimension];
+        coefficients = new double[INITIAL_CAPACITY * COEFFICIENTS * dimension];
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    /**
+     * Empties the trajectory and stores its initial state, the buffers are kept.
+     * @param t0 : initial time
+     * @param y0 : initial state
+     */
+    public void reset(double t0, double[] y0)
+    {
+        steps = 0;
+        cursor = 0;
+        times[0] = t0;
+        endTime = t0;
+        System.arraycopy(y0, 0, states, 0, dimension);
+    }
+
+    /**
+     * Appends an accepted step.
+     * @param tEnd : time at the end of the step
+     * @param yEnd : state at the end of the step
+     * @param stepCoefficients : dense output of the step, COEFFICIENTS*dimension values
+     */
+    void addStep(double tEnd, double[] yEnd, double[] stepCoefficients)
+    {
+        ensureCapacity(steps + 1);
+        int width = COEFFICIENTS * dimension;
+        System.arraycopy(stepCoefficients, 0, coefficients, steps * width, width);
+        steps++;
+        times[steps] = tEnd;
+        endTime = tEnd;
+        System.arraycopy(yEnd, 0, states, steps * dimension, dimension);
+    }
+
+    /**
+     * Ends the trajectory early, inside its last step (used when an event was located).
+     * @param time : new end time
+     */
+    void truncate(double time)
+    {
+        endTime = Math.min(time, times[steps]);
+    }
+
+    /**
+     * Writes the state at time t into out, t is clamped to [start, end] of the trajectory.
+     * @param t : time
+     * @param out : output, length at least getDimension()
+     */
+    public void sample(double t, double[] out)
+    {
+        if(steps == 0 || t <= times[0])
+        {
+            System.arraycopy(states, 0, out, 0, dimension);
+            return;
+        }
+        t = Math.min(t, endTime);
+
+        int k = findStep(t);
+        double h = times[k + 1] - times[k];
+        double theta = (h > 0) ? (t - times[k]) / h : 1.0;
+        evaluate(k, theta, out);
+    }
+
+    /**
+     * Evaluates the dense output polynomial of step k.
+     * @param k : step index
+     * @param theta : position within the step, from 0 to 1
+     * @param out : output state
+     */
+    void evaluate(int k, double theta, double[] out)
+    {
+        double theta1 = 1.0 - theta;
+        int base = k * COEFFICIENTS * dimension;
+        for(int i = 0; i < dimension; i++)
+        {
+            double c1 = coefficients[base + i];
+            double c2 = coefficients[base + dimension + i];
+            double c3 = coefficients[base + 2 * dimension + i];
+            double c4 = coefficients[base + 3 * dimension + i];
+            double c5 = coefficients[base + 4 * dimension + i];
+            out[i] = c1 + theta * (c2 + theta1 * (c3 + theta * (c4 + theta1 * c5)));
+        }
+    }
+
+    /**
+     * Returns the index of the step containing t, starting the search from the previous result.
+     * @param t : time within the trajectory
+     * @return : step index
+     */
+    private int findStep(double t)
+    {
+        if(cursor >= steps || t < times[cursor])
+            cursor = 0;
+        while(cursor < steps - 1 && t >= times[cursor + 1])
+            cursor++;
+        return cursor;
+    }
+
+    /**
+     * Grows the buffers so they can hold the given number of steps.
+     * @param required : number of steps
+     */
+    private void ensureCapacity(int required)
+    {
+        int capacity = times.length - 1;
+        if(required <= capacity)
+            return;
+        int newCapacity = Math.max(required, capacity * 2);
+        times = Arrays.copyOf(times, newCapacity + 1);
+        states = Arrays.copyOf(states, (newCapacity + 1) * dimension);
+        coefficients = Arrays.copyOf(coefficients, newCapacity * COEFFICIENTS * dimension);
+    }
+
+    /**
+     * Returns the number of state variables.
+     * @return : dimension
+     */
+    public int getDimension()
+    {
+        return dimension;
+    }
+
+    /**
+     * Returns the number of accepted steps.
+     * @return : steps
+     */
+    public int getStepCount()
+    {
+        return steps;
+    }
+
+    /**
+     * Returns the time at the start of the trajectory.
+     * @return : initial time
+     */
+    public double getStartTime()
+    {
+        return times[0];
+    }
+
+    /**
+     * Returns the time at the end of the trajectory.
+     * @return : final time
+     */
+    public double getEndTime()
+    {
+        return endTime;
+    }
+
+    /**
+     * Returns the time at the start of step k (k = getStepCount() gives the end of the last step).
+     * @param k : step index
+     * @return : time
+     */
+    public double getTime(int k)
+    {
+        return times[k];
+    }
+
+    /**
+     * Returns state variable i at the start of step k.
+     * @param k : step index
+     * @param i : state variable
+     * @return : value
+     */
+    public double getState(int k, int i)
+    {
+        return states[k * dimension + i];
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
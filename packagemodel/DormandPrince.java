@@ -0,0 +1,271 @@
+package packagemodel;
+
+/**
+ * Adaptive Runge-Kutta integrator of order 5(4) (Dormand-Prince) with dense output of order 4.
+ * Every accepted step is written to a DenseTrajectory, and the integration may stop on an event :
+ * the first time a state variable reaches a given value, located on the dense output.
+ * One instance reuses its stage buffers between runs, it is not meant to be shared between threads.
+ * @author patrickspensieri
+ */
+public class DormandPrince
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    // Butcher tableau
+    private static final double C2 = 1.0 / 5.0, C3 = 3.0 / 10.0, C4 = 4.0 / 5.0, C5 = 8.0 / 9.0;
+    private static final double A21 = 1.0 / 5.0;
+    private static final double A31 = 3.0 / 40.0, A32 = 9.0 / 40.0;
+    private static final double A41 = 44.0 / 45.0, A42 = -56.0 / 15.0, A43 = 32.0 / 9.0;
+    private static final double A51 = 19372.0 / 6561.0, A52 = -25360.0 / 2187.0, A53 = 64448.0 / 6561.0,
+            A54 = -212.0 / 729.0;
+    private static final double A61 = 9017.0 / 3168.0, A62 = -355.0 / 33.0, A63 = 46732.0 / 5247.0,
+            A64 = 49.0 / 176.0, A65 = -5103.0 / 18656.0;
+    private static final double A71 = 35.0 / 384.0, A73 = 500.0 / 1113.0, A74 = 125.0 / 192.0,
+            A75 = -2187.0 / 6784.0, A76 = 11.0 / 84.0;
+    // error estimate (difference between the 5th and 4th order solutions)
+    private static final double E1 = 71.0 / 57600.0, E3 = -71.0 / 16695.0, E4 = 71.0 / 1920.0,
+            E5 = -17253.0 / 339200.0, E6 = 22.0 / 525.0, E7 = -1.0 / 40.0;
+    // dense output
+    private static final double D1 = -12715105075.0 / 11282082432.0, D3 = 87487479700.0 / 32700410799.0,
+            D4 = -10690763975.0 / 1880347072.0, D5 = 701980252875.0 / 199316789632.0,
+            D6 = -1453857185.0 / 822651844.0, D7 = 69997945.0 / 29380423.0;
+
+    private static final double SAFETY = 0.9;
+    private static final double MIN_FACTOR = 0.2;
+    private static final double MAX_FACTOR = 5.0;
+    private static final int MAX_STEPS = 1000000;
+    private static final int EVENT_ITERATIONS = 60;
+
+    private double relativeTolerance = 1.0e-8;
+    private double absoluteTolerance = 1.0e-10;
+
+    private int eventVariable = -1;             //state variable watched by the event, -1 for none
+    private double eventValue;
+    private boolean eventReached;
+
+    private double[] y, yNew, yStage, k1, k2, k3, k4, k5, k6, k7, dense;
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    /**
+     * Sets the error tolerances of the step size control.
+     * @param relative : relative tolerance
+     * @param absolute : absolute tolerance
+     */
+    public void setTolerances(double relative, double absolute)
+    {
+        relativeTolerance = relative;
+        absoluteTolerance = absolute;
+    }
+
+    /**
+     * Stops the integration the first time state variable i reaches value (crossing upwards).
+     * @param i : watched state variable, -1 removes the event
+     * @param value : threshold
+     */
+    public void setStopEvent(int i, double value)
+    {
+        eventVariable = i;
+        eventValue = value;
+    }
+
+    /**
+     * Returns true if the last integration ended on the stop event rather than at tEnd.
+     * @return : eventReached
+     */
+    public boolean isEventReached()
+    {
+        return eventReached;
+    }
+
+    /**
+     * Integrates the system from (t0, y0) up to tEnd, or up to the stop event, into trajectory.
+     * @param system : the equations
+     * @param t0 : initial time
+     * @param y0 : initial state
+     * @param tEnd : final time, greater than t0
+     * @param trajectory : output, reset first, its dimension must match the system
+     * @throws ArithmeticException : if the error estimate is not a number, the step size underflows or
+     * MAX_STEPS steps do not reach tEnd, rather than returning a trajectory ending before tEnd
+     */
+    public void integrate(OdeSystem system, double t0, double[] y0, double tEnd, DenseTrajectory trajectory)
+    {
+        int n = system.getDimension();
+        allocate(n);
+        System.arraycopy(y0, 0, y, 0, n);
+        trajectory.reset(t0, y0);
+        eventReached = false;
+
+        double t = t0;
+        double h = initialStep(system, t0, tEnd);
+        system.computeDerivatives(t, y, k1);
+
+        for(int count = 0; t < tEnd; count++)
+        {
+            if(count == MAX_STEPS)
+                throw new ArithmeticException("no convergence after " + MAX_STEPS + " steps, stopped at t = " + t);
+            if(t + h > tEnd)
+                h = tEnd - t;
+            if(!(t + h > t))
+                throw new ArithmeticException("step size underflow at t = " + t + ", h = " + h);
+
+            double error = attemptStep(system, t, h, n);
+            if(Double.isNaN(error))
+                throw new ArithmeticException("error estimate is not a number at t = " + t + ", h = " + h);
+            if(error <= 1.0)
+            {
+                storeDense(h, n);
+                trajectory.addStep(t + h, yNew, dense);
+                if(eventVariable >= 0 && y[eventVariable] < eventValue && yNew[eventVariable] >= eventValue)
+                {
+                    trajectory.truncate(locateEvent(trajectory, t, h));
+                    eventReached = true;
+                    return;
+                }
+
+                t += h;
+                //FSAL : the last stage is the first stage of the next step
+                double[] swap = y;
+                y = yNew;
+                yNew = swap;
+                swap = k1;
+                k1 = k7;
+                k7 = swap;
+
+                double factor = (error == 0) ? MAX_FACTOR : SAFETY * Math.pow(error, -0.2);
+                h *= Math.min(MAX_FACTOR, Math.max(MIN_FACTOR, factor));
+            }
+            else
+                h *= Math.max(MIN_FACTOR, SAFETY * Math.pow(error, -0.2));
+        }
+    }
+
+    /**
+     * Computes the stages of a step of size h from (t, y) into yNew and returns the scaled error norm.
+     * @param system : the equations
+     * @param t : time
+     * @param h : step size
+     * @param n : dimension
+     * @return : error norm, the step is accepted when it is <= 1
+     */
+    private double attemptStep(OdeSystem system, double t, double h, int n)
+    {
+        for(int i = 0; i < n; i++)
+            yStage[i] = y[i] + h * A21 * k1[i];
+        system.computeDerivatives(t + C2 * h, yStage, k2);
+        for(int i = 0; i < n; i++)
+            yStage[i] = y[i] + h * (A31 * k1[i] + A32 * k2[i]);
+        system.computeDerivatives(t + C3 * h, yStage, k3);
+        for(int i = 0; i < n; i++)
+            yStage[i] = y[i] + h * (A41 * k1[i] + A42 * k2[i] + A43 * k3[i]);
+        system.computeDerivatives(t + C4 * h, yStage, k4);
+        for(int i = 0; i < n; i++)
+            yStage[i] = y[i] + h * (A51 * k1[i] + A52 * k2[i] + A53 * k3[i] + A54 * k4[i]);
+        system.computeDerivatives(t + C5 * h, yStage, k5);
+        for(int i = 0; i < n; i++)
+            yStage[i] = y[i] + h * (A61 * k1[i] + A62 * k2[i] + A63 * k3[i] + A64 * k4[i] + A65 * k5[i]);
+        system.computeDerivatives(t + h, yStage, k6);
+        for(int i = 0; i < n; i++)
+            yNew[i] = y[i] + h * (A71 * k1[i] + A73 * k3[i] + A74 * k4[i] + A75 * k5[i] + A76 * k6[i]);
+        system.computeDerivatives(t + h, yNew, k7);
+
+        double sum = 0;
+        for(int i = 0; i < n; i++)
+        {
+            double errorI = h * (E1 * k1[i] + E3 * k3[i] + E4 * k4[i] + E5 * k5[i] + E6 * k6[i] + E7 * k7[i]);
+            double scale = absoluteTolerance + relativeTolerance * Math.max(Math.abs(y[i]), Math.abs(yNew[i]));
+            sum += (errorI / scale) * (errorI / scale);
+        }
+        return Math.sqrt(sum / n);
+    }
+
+    /**
+     * Fills dense with the continuous extension of the step just accepted.
+     * @param h : step size
+     * @param n : dimension
+     */
+    private void storeDense(double h, int n)
+    {
+        for(int i = 0; i < n; i++)
+        {
+            double ydiff = yNew[i] - y[i];
+            double bspl = h * k1[i] - ydiff;
+            dense[i] = y[i];
+            dense[n + i] = ydiff;
+            dense[2 * n + i] = bspl;
+            dense[3 * n + i] = ydiff - h * k7[i] - bspl;
+            dense[4 * n + i] = h * (D1 * k1[i] + D3 * k3[i] + D4 * k4[i] + D5 * k5[i] + D6 * k6[i] + D7 * k7[i]);
+        }
+    }
+
+    /**
+     * Locates, by bisection on the dense output of the last step, the time the event variable reaches its value.
+     * @param trajectory : trajectory holding the last step
+     * @param t : start of the last step
+     * @param h : size of the last step
+     * @return : event time
+     */
+    private double locateEvent(DenseTrajectory trajectory, double t, double h)
+    {
+        int k = trajectory.getStepCount() - 1;
+        double low = 0;
+        double high = 1;
+        for(int i = 0; i < EVENT_ITERATIONS; i++)
+        {
+            double mid = 0.5 * (low + high);
+            trajectory.evaluate(k, mid, yStage);
+            if(yStage[eventVariable] < eventValue)
+                low = mid;
+            else
+                high = mid;
+        }
+        return t + high * h;
+    }
+
+    /**
+     * Returns a first step size from the scale of the derivatives (Hairer's heuristic, simplified).
+     * @param system : the equations
+     * @param t0 : initial time
+     * @param tEnd : final time
+     * @return : initial step size
+     */
+    private double initialStep(OdeSystem system, double t0, double tEnd)
+    {
+        system.computeDerivatives(t0, y, k1);
+        double d0 = 0;
+        double d1 = 0;
+        for(int i = 0; i < y.length; i++)
+        {
+            double scale = absoluteTolerance + relativeTolerance * Math.abs(y[i]);
+            d0 += (y[i] / scale) * (y[i] / scale);
+            d1 += (k1[i] / scale) * (k1[i] / scale);
+        }
+        d0 = Math.sqrt(d0 / y.length);
+        d1 = Math.sqrt(d1 / y.length);
+        double h = (d0 < 1.0e-5 || d1 < 1.0e-5) ? 1.0e-6 : 0.01 * d0 / d1;
+        return Math.min(Math.max(h, 1.0e-12 * (tEnd - t0)), tEnd - t0);
+    }
+
+    /**
+     * Allocates the stage buffers when the dimension changes.
+     * @param n : dimension
+     */
+    private void allocate(int n)
+    {
+        if(y != null && y.length == n)
+            return;
+        y = new double[n];
+        yNew = new double[n];
+        yStage = new double[n];
+        k1 = new double[n];
+        k2 = new double[n];
+        k3 = new double[n];
+        k4 = new double[n];
+        k5 = new double[n];
+        k6 = new double[n];
+        k7 = new double[n];
+        dense = new double[DenseTrajectory.COEFFICIENTS * n];
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
@@ -0,0 +1,144 @@
+package packagemodel;
+
+/**
+ * Reduces a large (x, y) sequence to a bounded number of points for plotting, using the
+ * largest-triangle-three-buckets algorithm, and locates the part of a sequence inside an x-window.
+ * All methods read and write primitive buffers, x values must be sorted in ascending order.
+ * @author patrickspensieri
+ */
+public final class Downsampler
+{
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    private Downsampler()
+    {
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    /**
+     * Downsamples points [from, to) to at most threshold points, keeping the first and last point and,
+     * in every bucket in between, the point forming the largest triangle with its neighbours.
+     * @param x : x values, ascending
+     * @param y : y values
+     * @param from : first index (inclusive)
+     * @param to : last index (exclusive)
+     * @param threshold : maximum number of points written
+     * @param outX : destination for x, length at least threshold
+     * @param outY : destination for y, length at least threshold
+     * @return : the number of points written
+     */
+    public static int largestTriangleThreeBuckets(double[] x, double[] y, int from, int to, int threshold,
+            double[] outX, double[] outY)
+    {
+        int count = to - from;
+        if(count <= 0)
+            return 0;
+        if(count <= threshold || threshold < 3)
+        {
+            int copied = Math.min(count, Math.max(threshold, 0));
+            System.arraycopy(x, from, outX, 0, copied);
+            System.arraycopy(y, from, outY, 0, copied);
+            return copied;
+        }
+
+        double every = (double)(count - 2) / (threshold - 2);
+        int a = from;
+        int written = 0;
+        outX[written] = x[a];
+        outY[written++] = y[a];
+
+        for(int i = 0; i < threshold - 2; i++)
+        {
+            //average of the next bucket, used as the third vertex of the triangle
+            int avgStart = from + (int)Math.floor((i + 1) * every) + 1;
+            int avgEnd = Math.min(from + (int)Math.floor((i + 2) * every) + 1, to);
+            double avgX = 0;
+            double avgY = 0;
+            for(int j = avgStart; j < avgEnd; j++)
+            {
+                avgX += x[j];
+                avgY += y[j];
+            }
+            int avgLength = avgEnd - avgStart;
+            if(avgLength > 0)
+            {
+                avgX /= avgLength;
+                avgY /= avgLength;
+            }
+            else
+            {
+                avgX = x[to - 1];
+                avgY = y[to - 1];
+            }
+
+            //point of the current bucket forming the largest triangle
+            int rangeStart = from + (int)Math.floor(i * every) + 1;
+            int rangeEnd = from + (int)Math.floor((i + 1) * every) + 1;
+            double maxArea = -1;
+            int maxIndex = rangeStart;
+            for(int j = rangeStart; j < rangeEnd; j++)
+            {
+                double area = Math.abs((x[a] - avgX) * (y[j] - y[a]) - (x[a] - x[j]) * (avgY - y[a]));
+                if(area > maxArea)
+                {
+                    maxArea = area;
+                    maxIndex = j;
+                }
+            }
+            outX[written] = x[maxIndex];
+            outY[written++] = y[maxIndex];
+            a = maxIndex;
+        }
+
+        outX[written] = x[to - 1];
+        outY[written++] = y[to - 1];
+        return written;
+    }
+
+    /**
+     * Returns the index of the first of the count values that is >= value.
+     * @param x : values, ascending
+     * @param count : number of valid values
+     * @param value : searched value
+     * @return : index in [0, count]
+     */
+    public static int lowerBound(double[] x, int count, double value)
+    {
+        int low = 0;
+        int high = count;
+        while(low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if(x[mid] < value)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Returns the index of the first of the count values that is > value.
+     * @param x : values, ascending
+     * @param count : number of valid values
+     * @param value : searched value
+     * @return : index in [0, count]
+     */
+    public static int upperBound(double[] x, int count, double value)
+    {
+        int low = 0;
+        int high = count;
+        while(low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if(x[mid] <= value)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
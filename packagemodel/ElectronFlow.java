@@ -0,0 +1,209 @@
+package packagemodel;
+
+/**
+ * Particle system of electrons flowing around the branches of a circuit. Every branch has a closed path
+ * (a polyline) and a current : electrons are emitted at a rate and drift at a speed both proportional
+ * to that current, and disappear at the end of the path. Particles are stored as a structure of
+ * primitive arrays and removed by swapping with the last one, so a step costs O(particles) with no
+ * allocation.
+ * @author patrickspensieri
+ */
+public class ElectronFlow
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    private final double[][] pathX, pathY;      //vertices of the path of every branch
+    private final double[][] pathLength;        //pathLength[b][k] = distance from the start to vertex k
+    private final double[] currents;            // in amps, per branch
+    private final double[] emissionDebt;        //fraction of a particle still to emit, per branch
+    private double emissionPerAmp = 60;         //particles per second per amp
+    private double speedPerAmp = 150;           //path units per second per amp
+    private boolean emitting = true;
+
+    //particles, valid from 0 to count-1
+    private final int[] branch;
+    private final int[] segment;                //path segment the particle is on
+    private final double[] distance;            //distance travelled along the path
+    private final double[] x, y;                //position, updated by step()
+    private int count;
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    /**
+     * Creates an empty flow.
+     * @param capacity : maximum number of particles, emission stops when it is reached
+     * @param pathX : x of the vertices of the path of every branch
+     * @param pathY : y of the vertices of the path of every branch
+     */
+    public ElectronFlow(int capacity, double[][] pathX, double[][] pathY)
+    {
+        this.pathX = pathX;
+        this.pathY = pathY;
+        int branches = pathX.length;
+        pathLength = new double[branches][];
+        for(int b = 0; b < branches; b++)
+        {
+            pathLength[b] = new double[pathX[b].length];
+            for(int k = 1; k < pathX[b].length; k++)
+            {
+                pathLength[b][k] = pathLength[b][k - 1]
+                        + Math.hypot(pathX[b][k] - pathX[b][k - 1], pathY[b][k] - pathY[b][k - 1]);
+            }
+        }
+        currents = new double[branches];
+        emissionDebt = new double[branches];
+        branch = new int[capacity];
+        segment = new int[capacity];
+        distance = new double[capacity];
+        x = new double[capacity];
+        y = new double[capacity];
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    /**
+     * Advances every particle and emits new ones.
+     * @param dt : time step, in seconds
+     */
+    public void step(double dt)
+    {
+        int i = 0;
+        while(i < count)
+        {
+            int b = branch[i];
+            distance[i] += speedPerAmp * Math.abs(currents[b]) * dt;
+            double[] lengths = pathLength[b];
+            if(distance[i] >= lengths[lengths.length - 1])
+            {
+                remove(i);
+                continue;               //the last particle was moved into slot i
+            }
+            while(distance[i] > lengths[segment[i] + 1])
+                segment[i]++;
+            place(i);
+            i++;
+        }
+
+        for(int b = 0; b < currents.length && emitting; b++)
+        {
+            emissionDebt[b] += emissionPerAmp * Math.abs(currents[b]) * dt;
+            while(emissionDebt[b] >= 1 && count < branch.length)
+            {
+                emissionDebt[b] -= 1;
+                branch[count] = b;
+                segment[count] = 0;
+                //spread the particles emitted during one step along the distance they could have covered
+                distance[count] = emissionDebt[b] * speedPerAmp / emissionPerAmp;
+                while(segment[count] < pathLength[b].length - 2 && distance[count] > pathLength[b][segment[count] + 1])
+                    segment[count]++;
+                place(count);
+                count++;
+            }
+            emissionDebt[b] = Math.min(emissionDebt[b], 1);
+        }
+    }
+
+    /**
+     * Computes the position of a particle from its distance along its segment.
+     * @param i : particle
+     */
+    private void place(int i)
+    {
+        int b = branch[i];
+        int k = segment[i];
+        double start = pathLength[b][k];
+        double length = pathLength[b][k + 1] - start;
+        double t = (length > 0) ? (distance[i] - start) / length : 0;
+        x[i] = pathX[b][k] + t * (pathX[b][k + 1] - pathX[b][k]);
+        y[i] = pathY[b][k] + t * (pathY[b][k + 1] - pathY[b][k]);
+    }
+
+    /**
+     * Removes a particle by moving the last one into its slot.
+     * @param i : particle
+     */
+    private void remove(int i)
+    {
+        count--;
+        branch[i] = branch[count];
+        segment[i] = segment[count];
+        distance[i] = distance[count];
+        x[i] = x[count];
+        y[i] = y[count];
+    }
+
+    /**
+     * Removes every particle.
+     */
+    public void clear()
+    {
+        count = 0;
+        for(int b = 0; b < emissionDebt.length; b++)
+            emissionDebt[b] = 0;
+    }
+
+    /**
+     * Sets the current of a branch, which drives its emission rate and drift speed.
+     * @param b : branch
+     * @param current : in amps
+     */
+    public void setCurrent(int b, double current)
+    {
+        currents[b] = current;
+    }
+
+    /**
+     * Sets the proportionality constants of the emission rate and drift speed.
+     * @param emissionPerAmp : particles per second per amp
+     * @param speedPerAmp : path units per second per amp
+     */
+    public void setScale(double emissionPerAmp, double speedPerAmp)
+    {
+        this.emissionPerAmp = emissionPerAmp;
+        this.speedPerAmp = speedPerAmp;
+    }
+
+    /**
+     * Starts or stops the emission of new particles, the particles already emitted keep flowing.
+     * @param emitting : true to emit
+     */
+    public void setEmitting(boolean emitting)
+    {
+        this.emitting = emitting;
+    }
+
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Returns the x positions, valid from 0 to getCount()-1.
+     * @return : x
+     */
+    public double[] getX()
+    {
+        return x;
+    }
+
+    /**
+     * Returns the y positions, valid from 0 to getCount()-1.
+     * @return : y
+     */
+    public double[] getY()
+    {
+        return y;
+    }
+
+    /**
+     * Returns the branch of every particle, valid from 0 to getCount()-1.
+     * @return : branch
+     */
+    public int[] getBranch()
+    {
+        return branch;
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
@@ -0,0 +1,205 @@
+package packagemodel;
+
+/**
+ * Series engine for the geometric series a + ar + ar^2 + ... used by the IGS module.
+ * Partial sums are computed either in closed form (single query) or iteratively into a
+ * caller supplied buffer (all terms), so no recursion is involved and n may be very large.
+ * @author patrickspensieri
+ */
+public final class GeometricSeries
+{
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    private GeometricSeries()
+    {
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    /**
+     * Returns the n-th partial sum a(1 - r^n)/(1 - r) in O(1) time and memory.
+     * @param a : first term
+     * @param r : common ratio
+     * @param n : number of terms summed
+     * @return : S(n), or 0 when n <= 0
+     */
+    public static double partialSum(double a, double r, long n)
+    {
+        if(n <= 0)
+            return 0;
+        if(r == 1.0)
+            return a * n;
+        if(r == 0.0)
+            return a;
+
+        // 1 - r^n is evaluated through expm1 when r > 0, so ratios close to 1 keep their precision
+        double oneMinusRn;
+        if(r > 0)
+            oneMinusRn = -Math.expm1(n * Math.log(r));
+        else
+            oneMinusRn = 1.0 - Math.pow(r, n);
+        return a * oneMinusRn / (1.0 - r);
+    }
+
+    /**
+     * Returns the sum of the infinite series a/(1 - r), or NaN when |r| >= 1.
+     * @param a : first term
+     * @param r : common ratio
+     * @return : limit of the partial sums
+     */
+    public static double limit(double a, double r)
+    {
+        if(!(-1.0 < r && r < 1.0))
+            return Double.NaN;
+        return a / (1.0 - r);
+    }
+
+    /**
+     * Fills sums[0..steps-1] with the partial sums S(1)..S(steps), iteratively.
+     * The buffer is reused by the caller, no memory is allocated here.
+     * @param a : first term
+     * @param r : common ratio
+     * @param sums : destination buffer, length must be at least steps
+     * @param steps : the number of terms to sum (n)
+     * @return : S(steps), or 0 when steps <= 0
+     */
+    public static double fillPartialSums(double a, double r, double[] sums, int steps)
+    {
+        if(steps > sums.length)
+            throw new IllegalArgumentException("buffer holds " + sums.length + " sums, " + steps + " requested");
+
+        double sum = 0;
+        double term = a;
+        for(int i = 0; i < steps; i++)
+        {
+            sum += term;
+            sums[i] = sum;
+            term *= r;
+        }
+        return sum;
+    }
+
+    /**
+     * Fills sums[] with compensated (Neumaier) partial sums and stops as soon as a partial sum
+     * lies within epsilon of the target, so terms that no longer change the result are skipped.
+     * @param a : first term
+     * @param r : common ratio
+     * @param target : value the partial sums converge to, usually limit(a, r)
+     * @param epsilon : tolerance on |S(n) - target|
+     * @param sums : destination buffer, length must be at least maxSteps
+     * @param maxSteps : maximum number of terms summed
+     * @return : the number of terms used (sums[0..used-1] are valid)
+     */
+    public static int compensatedPartialSums(double a, double r, double target, double epsilon,
+            double[] sums, int maxSteps)
+    {
+        return compensatedPartialSums(a, r, target, epsilon, sums, null, null, false, maxSteps);
+    }
+
+    /**
+     * Fills sums[] with compensated (Neumaier) partial sums and accelerated[] with their Wynn-epsilon
+     * estimates of the limit, and stops as soon as a partial sum lies within epsilon of the target.
+     * The estimates are not compared with the target : they reach the limit of a geometric series
+     * from three sums, so they would always stop there. With stopOnEstimate, the run also stops once
+     * two successive estimates agree within epsilon.
+     * @param a : first term
+     * @param r : common ratio
+     * @param target : value the partial sums converge to, usually limit(a, r)
+     * @param epsilon : tolerance on |S(n) - target|, and on |E(n) - E(n - 1)| with stopOnEstimate
+     * @param sums : destination buffer, length must be at least maxSteps
+     * @param work : scratch buffer of the epsilon table, length at least maxSteps, null for no estimates
+     * @param accelerated : destination of the estimates, length at least maxSteps, null for no estimates
+     * @param stopOnEstimate : true to also stop once the estimates have settled
+     * @param maxSteps : maximum number of terms summed
+     * @return : the number of terms used (sums[0..used-1] and accelerated[0..used-1] are valid)
+     */
+    public static int compensatedPartialSums(double a, double r, double target, double epsilon,
+            double[] sums, double[] work, double[] accelerated, boolean stopOnEstimate, int maxSteps)
+    {
+        if(maxSteps > sums.length)
+            throw new IllegalArgumentException("buffer holds " + sums.length + " sums, " + maxSteps + " requested");
+        boolean accelerate = (work != null && accelerated != null);
+        if(accelerate && (maxSteps > work.length || maxSteps > accelerated.length))
+            throw new IllegalArgumentException("acceleration buffers hold fewer than " + maxSteps + " estimates");
+
+        double sum = 0;
+        double compensation = 0;        //running total of the low order bits lost by sum
+        double term = a;
+        for(int i = 0; i < maxSteps; i++)
+        {
+            double t = sum + term;
+            if(Math.abs(sum) >= Math.abs(term))
+                compensation += (sum - t) + term;
+            else
+                compensation += (term - t) + sum;
+            sum = t;
+            sums[i] = sum + compensation;
+
+            boolean converged = Math.abs(sums[i] - target) <= epsilon;
+            if(accelerate)
+            {
+                double previous = (i == 0) ? Double.NaN : accelerated[i - 1];
+                accelerated[i] = SeriesAcceleration.wynnEpsilonStep(sums, i, work, previous);
+                if(stopOnEstimate && i > 0)
+                    converged |= Math.abs(accelerated[i] - previous) <= epsilon;
+            }
+            if(converged)
+                return i + 1;
+            term *= r;
+        }
+        return maxSteps;
+    }
+
+    /**
+     * Fills sums[0..steps-1] with the exact partial sums S(1)..S(steps). Fractions stay in longs
+     * while they fit, so the common case allocates no BigInteger.
+     * @param a : first term
+     * @param r : common ratio
+     * @param sums : destination buffer, length must be at least steps
+     * @param steps : the number of terms to sum (n)
+     * @return : S(steps), or 0 when steps <= 0
+     */
+    public static Rational fillExactPartialSums(Rational a, Rational r, Rational[] sums, int steps)
+    {
+        if(steps > sums.length)
+            throw new IllegalArgumentException("buffer holds " + sums.length + " sums, " + steps + " requested");
+
+        Rational sum = Rational.ZERO;
+        Rational term = a;
+        for(int i = 0; i < steps; i++)
+        {
+            sum = sum.add(term);
+            sums[i] = sum;
+            term = term.multiply(r);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the exact sum of the infinite series a/(1 - r), or null when |r| >= 1.
+     * @param a : first term
+     * @param r : common ratio
+     * @return : limit of the partial sums
+     */
+    public static Rational exactLimit(Rational a, Rational r)
+    {
+        if(r.compareTo(Rational.ONE) >= 0 || r.compareTo(Rational.ONE.negate()) <= 0)
+            return null;
+        return a.divide(Rational.ONE.subtract(r));
+    }
+
+    /**
+     * Returns a buffer able to hold the requested number of sums, reusing the given one when possible.
+     * @param sums : current buffer, may be null
+     * @param steps : number of sums needed
+     * @return : sums if large enough, otherwise a new buffer
+     */
+    public static double[] ensureCapacity(double[] sums, int steps)
+    {
+        if(sums != null && sums.length >= steps)
+            return sums;
+        return new double[steps];
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
@@ -0,0 +1,170 @@
+package packagemodel;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Evaluates many (a, r) pairs of the geometric series at once, split across the common fork-join pool.
+ * Only primitive arrays are read and written, so no state is shared with the JavaFX data classes.
+ * @author patrickspensieri
+ */
+public final class GeometricSeriesBatch
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    private static final int THRESHOLD = 4096;         //pairs evaluated sequentially by a single task
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    private GeometricSeriesBatch()
+    {
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    /**
+     * Computes S(n) and the limit for every pair (a[i], r[i]).
+     * @param a : first terms
+     * @param r : common ratios, same length as a
+     * @param n : number of terms of each partial sum
+     * @param partialSums : output, partialSums[i] = S(n) of pair i
+     * @param limits : output, limits[i] = a[i]/(1 - r[i]), NaN when the series diverges
+     */
+    public static void evaluate(double[] a, double[] r, int n, double[] partialSums, double[] limits)
+    {
+        if(a.length != r.length || partialSums.length < a.length || limits.length < a.length)
+            throw new IllegalArgumentException("a, r and output arrays must hold the same number of pairs");
+
+        ForkJoinPool.commonPool().invoke(new PairTask(a, r, n, partialSums, limits, 0, a.length));
+    }
+
+    /**
+     * Computes S(n) and the limit over the grid aValues x rValues. Results are stored row-major,
+     * index = row * rValues.length + col, where row indexes aValues and col indexes rValues.
+     * @param aValues : first terms (rows)
+     * @param rValues : common ratios (columns)
+     * @param n : number of terms of each partial sum
+     * @param partialSums : output, length aValues.length * rValues.length
+     * @param limits : output, length aValues.length * rValues.length
+     * @throws IllegalArgumentException : if the grid has more points than an array can hold, or the
+     * outputs are too short
+     */
+    public static void evaluateGrid(double[] aValues, double[] rValues, int n, double[] partialSums, double[] limits)
+    {
+        long points = (long)aValues.length * rValues.length;
+        if(points > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("grid of " + points + " points does not fit in an array");
+        int size = (int)points;
+        if(partialSums.length < size || limits.length < size)
+            throw new IllegalArgumentException("output arrays must hold " + size + " grid points");
+
+        ForkJoinPool.commonPool().invoke(new GridTask(aValues, rValues, n, partialSums, limits, 0, size));
+    }
+
+    /**
+     * Returns count values evenly spaced over the open interval (min, max), useful to build a grid of r.
+     * @param min : lower bound (excluded)
+     * @param max : upper bound (excluded)
+     * @param count : number of values
+     * @return : the values
+     */
+    public static double[] openRange(double min, double max, int count)
+    {
+        double[] values = new double[count];
+        double step = (max - min) / (count + 1);
+        for(int i = 0; i < count; i++)
+            values[i] = min + step * (i + 1);
+        return values;
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+
+    // TASKS ///////////////////////////////////////////////////////////////////
+    /**
+     * Evaluates pairs [from, to) of two parallel arrays, splitting in halves above THRESHOLD.
+     */
+    private static final class PairTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] a, r, partialSums, limits;
+        private final int n, from, to;
+
+        PairTask(double[] a, double[] r, int n, double[] partialSums, double[] limits, int from, int to)
+        {
+            this.a = a;
+            this.r = r;
+            this.n = n;
+            this.partialSums = partialSums;
+            this.limits = limits;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if(to - from <= THRESHOLD)
+            {
+                for(int i = from; i < to; i++)
+                {
+                    partialSums[i] = GeometricSeries.partialSum(a[i], r[i], n);
+                    limits[i] = GeometricSeries.limit(a[i], r[i]);
+                }
+            }
+            else
+            {
+                int mid = (from + to) >>> 1;
+                invokeAll(new PairTask(a, r, n, partialSums, limits, from, mid),
+                        new PairTask(a, r, n, partialSums, limits, mid, to));
+            }
+        }
+    }
+
+    /**
+     * Evaluates grid points [from, to) of a row-major aValues x rValues grid.
+     */
+    private static final class GridTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] aValues, rValues, partialSums, limits;
+        private final int n, from, to;
+
+        GridTask(double[] aValues, double[] rValues, int n, double[] partialSums, double[] limits, int from, int to)
+        {
+            this.aValues = aValues;
+            this.rValues = rValues;
+            this.n = n;
+            this.partialSums = partialSums;
+            this.limits = limits;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if(to - from <= THRESHOLD)
+            {
+                int cols = rValues.length;
+                for(int i = from; i < to; i++)
+                {
+                    double a = aValues[i / cols];
+                    double r = rValues[i % cols];
+                    partialSums[i] = GeometricSeries.partialSum(a, r, n);
+                    limits[i] = GeometricSeries.limit(a, r);
+                }
+            }
+            else
+            {
+                int mid = (from + to) >>> 1;
+                invokeAll(new GridTask(aValues, rValues, n, partialSums, limits, from, mid),
+                        new GridTask(aValues, rValues, n, partialSums, limits, mid, to));
+            }
+        }
+    }
+
+    // END TASKS ///////////////////////////////////////////////////////////////
+}
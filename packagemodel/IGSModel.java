@@ -0,0 +1,250 @@
+package packagemodel;
+
+/**
+ * Headless model of the Infinite Geometric Series : the first term a and common ratio r feed a compute
+ * graph giving the limit a / (1 - r), and every run fills the compensated partial sums up to that
+ * limit, their exact values when a and r are exact fractions, and the accelerated estimates of the
+ * limit. The buffers are reused between runs and only grown when more steps are requested.
+ * @author patrickspensieri
+ */
+public class IGSModel
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    public static final double DEFAULT_EPSILON = 0.001;     //tolerance used to stop summing early
+
+    private final ComputeGraph graph = new ComputeGraph();
+    private final int aNode, rNode, limitNode;
+    private double epsilon = DEFAULT_EPSILON;
+    private boolean stopOnEstimate;             //also stop once successive accelerated estimates agree
+
+    private double[] sumArray;
+    private double[] accelArray;                //accelerated estimate of the limit after each partial sum
+    private double[] accelWork;                 //scratch buffer of the epsilon algorithm
+    private int stepCount;                      //number of terms actually used by the last run
+
+    //exact values of a and r, null when they are only known approximately
+    private Rational exactA;
+    private Rational exactR;
+    private Rational[] exactSumArray;
+    private boolean exactMode;                  //true if exactSumArray holds the sums of the last run
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    /**
+     * Creates the model.
+     * @param a : first term
+     * @param r : common ratio
+     */
+    public IGSModel(double a, double r)
+    {
+        aNode = graph.addInput(a);
+        rNode = graph.addInput(r);
+        limitNode = graph.addNode(new ComputeGraph.Function()
+        {
+            @Override
+            public double compute(ComputeGraph g) // S = a / (1 - r)
+            {
+                return g.get(aNode) / (1 - g.get(rNode));
+            }
+        }, aNode, rNode);
+        sumArray = new double[1];
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    public void setA(double a)
+    {
+        graph.set(aNode, a);
+    }
+
+    public void setR(double r)
+    {
+        graph.set(rNode, r);
+    }
+
+    /**
+     * Sets the exact value of the first term, used by the next run when r is exact too.
+     * @param exactA : first term, null if only known approximately
+     */
+    public void setExactA(Rational exactA)
+    {
+        this.exactA = exactA;
+    }
+
+    /**
+     * Sets the exact value of the common ratio, used by the next run when a is exact too.
+     * @param exactR : common ratio, null if only known approximately
+     */
+    public void setExactR(Rational exactR)
+    {
+        this.exactR = exactR;
+    }
+
+    /**
+     * Sets the tolerance used to stop summing.
+     * @param epsilon : maximum distance between the last partial sum and the limit
+     */
+    public void setEpsilon(double epsilon)
+    {
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * Lets a run also stop once two successive accelerated estimates agree within epsilon, before the
+     * partial sums reach the limit. Off by default, so a run shows the sums converging. The estimates
+     * of a diverging series settle too, on its antilimit a / (1 - r).
+     * @param stopOnEstimate : true to stop on the estimates as well
+     */
+    public void setStopOnEstimate(boolean stopOnEstimate)
+    {
+        this.stopOnEstimate = stopOnEstimate;
+    }
+
+    /**
+     * Computes the partial sums of a run : compensated sums and their accelerated estimates of the
+     * limit, stopping as soon as a sum is within epsilon of the limit, or once the estimates have
+     * settled when stopOnEstimate is set. The sums are then
+     * replaced by the correctly rounded exact sums when a and r are exact, and the estimates recomputed
+     * from them.
+     * @param maxSteps : the maximum number of terms that will be summed
+     * @return : the number of terms used
+     */
+    public int run(int maxSteps)
+    {
+        sumArray = GeometricSeries.ensureCapacity(sumArray, maxSteps);
+        accelArray = GeometricSeries.ensureCapacity(accelArray, maxSteps);
+        accelWork = GeometricSeries.ensureCapacity(accelWork, maxSteps);
+        stepCount = GeometricSeries.compensatedPartialSums(getA(), getR(), getLimit(), epsilon, sumArray,
+                accelWork, accelArray, stopOnEstimate, maxSteps);
+        exactMode = fillExactSums(stepCount);
+        //the estimates follow the sums actually shown
+        if(exactMode)
+            SeriesAcceleration.wynnEpsilon(sumArray, stepCount, accelWork, accelArray);
+        return stepCount;
+    }
+
+    /**
+     * Fills the sums with the first steps partial sums through the iterative series engine,
+     * without tolerance, exact values or acceleration.
+     * @param steps : the number of terms that will be summed (n)
+     * @return : the partial sum of the last term
+     */
+    public double fillPartialSums(int steps)
+    {
+        sumArray = GeometricSeries.ensureCapacity(sumArray, steps);
+        stepCount = steps;
+        exactMode = false;
+        return GeometricSeries.fillPartialSums(getA(), getR(), sumArray, steps);
+    }
+
+    /**
+     * Fills exactSumArray with the exact partial sums when both a and r are exact, and overwrites
+     * sumArray with their correctly rounded doubles. The exact values are only used while they round
+     * to the inputs of the graph : a value set programmatically shows in the text field with three
+     * decimals, and that text must not replace the value actually summed.
+     * @param count : number of partial sums
+     * @return : true if the exact sums were computed
+     */
+    private boolean fillExactSums(int count)
+    {
+        if(exactA == null || exactR == null)
+            return false;
+        if(exactA.doubleValue() != getA() || exactR.doubleValue() != getR())
+            return false;
+        if(exactSumArray == null || exactSumArray.length < count)
+            exactSumArray = new Rational[count];
+        GeometricSeries.fillExactPartialSums(exactA, exactR, exactSumArray, count);
+        for(int i = 0; i < count; i++)
+            sumArray[i] = exactSumArray[i].doubleValue();
+        return true;
+    }
+
+    public double getA()
+    {
+        return graph.get(aNode);
+    }
+
+    public double getR()
+    {
+        return graph.get(rNode);
+    }
+
+    /**
+     * Returns the limit of the series.
+     * @return : a / (1 - r)
+     */
+    public double getLimit()
+    {
+        return graph.get(limitNode);
+    }
+
+    /**
+     * Returns the partial sums of the last run, valid up to getStepCount().
+     * @return : sums, reused by the next run
+     */
+    public double[] getSums()
+    {
+        return sumArray;
+    }
+
+    /**
+     * Returns the accelerated estimates of the limit of the last run, valid up to getStepCount().
+     * @return : estimates, reused by the next run
+     */
+    public double[] getAccelerated()
+    {
+        return accelArray;
+    }
+
+    public int getStepCount()
+    {
+        return stepCount;
+    }
+
+    /**
+     * Returns true if the last run computed exact partial sums.
+     * @return : exact mode
+     */
+    public boolean isExactMode()
+    {
+        return exactMode;
+    }
+
+    /**
+     * Returns the exact partial sum of index i of the last run.
+     * @param i : index, from 0 to getStepCount()-1
+     * @return : exact sum, null outside exact mode
+     */
+    public Rational getExactSum(int i)
+    {
+        return exactMode ? exactSumArray[i] : null;
+    }
+
+    /**
+     * Returns the graph computing the limit, for observers of its nodes.
+     * @return : compute graph
+     */
+    public ComputeGraph getGraph()
+    {
+        return graph;
+    }
+
+    public int getANode()
+    {
+        return aNode;
+    }
+
+    public int getRNode()
+    {
+        return rNode;
+    }
+
+    public int getLimitNode()
+    {
+        return limitNode;
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
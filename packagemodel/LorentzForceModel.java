@@ -0,0 +1,239 @@
+package packagemodel;
+
+/**
+ * Headless model of the Rail Gun : the current and mass of the armature feed a compute graph giving
+ * the force, acceleration, total time and final velocity of the loss free run. The same model builds
+ * the integrated equations of motion (with or without losses), the current x mass sweep and the
+ * Monte Carlo tolerance study, so all of them can run without a display.
+ * @author patrickspensieri
+ */
+public class LorentzForceModel
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    public static final double DISTANCE_BETWEEN_RODS = 1.0;     // in meters
+    public static final double RADIUS_OF_ROD = 0.1;             // in meters
+    public static final double RAIL_LENGTH = 1.0;               // in meters
+
+    //losses applied to the integrated model when enabled
+    public static final double FRICTION_COEFFICIENT = 0.3;
+    public static final double DRAG_CONSTANT = 0.5;             // 1/2 rho Cd A, in kg/m
+    public static final double RAIL_RESISTANCE = 1.0e-3;        // in ohms per meter
+
+    //relative standard deviations of the inputs sampled by the Monte Carlo study
+    public static final double CURRENT_TOLERANCE = 0.05;
+    public static final double MASS_TOLERANCE = 0.02;
+    public static final double SEPARATION_TOLERANCE = 0.01;
+    public static final double RADIUS_TOLERANCE = 0.05;
+
+    private final ComputeGraph graph = new ComputeGraph();
+    private final int currentNode, massNode;
+    private final int forceNode, accelerationNode, totalTimeNode, finalVelocityNode;
+    private boolean losses;
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    /**
+     * Creates the model.
+     * @param current : in amps
+     * @param mass : mass of the armature, in kg
+     */
+    public LorentzForceModel(double current, double mass)
+    {
+        currentNode = graph.addInput(current);
+        massNode = graph.addInput(mass);
+        forceNode = graph.addNode(new ComputeGraph.Function()
+        {
+            @Override
+            public double compute(ComputeGraph g) // F = ((u0)(I^2)ln(d/r)) / 2PI
+            {
+                double i = g.get(currentNode);
+                return ((RailGunModel.PERMEABILITY_OF_FREE_SPACE * i * i)
+                        * (Math.log(DISTANCE_BETWEEN_RODS / RADIUS_OF_ROD))
+                        / (2 * Math.PI));
+            }
+        }, currentNode);
+        accelerationNode = graph.addNode(new ComputeGraph.Function()
+        {
+            @Override
+            public double compute(ComputeGraph g) // a = F / m
+            {
+                return g.get(forceNode) / g.get(massNode);
+            }
+        }, forceNode, massNode);
+        totalTimeNode = graph.addNode(new ComputeGraph.Function()
+        {
+            @Override
+            public double compute(ComputeGraph g) // totalTime = sqrt((2d) / a)
+            {
+                return Math.pow((2*DISTANCE_BETWEEN_RODS / g.get(accelerationNode)), 0.5);
+            }
+        }, accelerationNode);
+        finalVelocityNode = graph.addNode(new ComputeGraph.Function()
+        {
+            @Override
+            public double compute(ComputeGraph g) // v = a * t
+            {
+                return g.get(accelerationNode) * g.get(totalTimeNode);
+            }
+        }, accelerationNode, totalTimeNode);
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    public void setCurrent(double current)
+    {
+        graph.set(currentNode, current);
+    }
+
+    public void setMass(double mass)
+    {
+        graph.set(massNode, mass);
+    }
+
+    /**
+     * Applies friction, drag and rail resistance to the integrated model.
+     * @param losses : true to apply the losses
+     */
+    public void setLosses(boolean losses)
+    {
+        this.losses = losses;
+    }
+
+    public double getCurrent()
+    {
+        return graph.get(currentNode);
+    }
+
+    public double getMass()
+    {
+        return graph.get(massNode);
+    }
+
+    public double getForce()
+    {
+        return graph.get(forceNode);
+    }
+
+    public double getAcceleration()
+    {
+        return graph.get(accelerationNode);
+    }
+
+    public double getTotalTime()
+    {
+        return graph.get(totalTimeNode);
+    }
+
+    public double getFinalVelocity()
+    {
+        return graph.get(finalVelocityNode);
+    }
+
+    public boolean hasLosses()
+    {
+        return losses;
+    }
+
+    /**
+     * Returns the graph computing the loss free run, for observers of its nodes.
+     * @return : compute graph
+     */
+    public ComputeGraph getGraph()
+    {
+        return graph;
+    }
+
+    public int getCurrentNode()
+    {
+        return currentNode;
+    }
+
+    public int getMassNode()
+    {
+        return massNode;
+    }
+
+    public int getForceNode()
+    {
+        return forceNode;
+    }
+
+    public int getAccelerationNode()
+    {
+        return accelerationNode;
+    }
+
+    public int getTotalTimeNode()
+    {
+        return totalTimeNode;
+    }
+
+    public int getFinalVelocityNode()
+    {
+        return finalVelocityNode;
+    }
+
+    /**
+     * Builds the equations of motion for the current inputs.
+     * @return : rail gun model, independent of this one
+     */
+    public RailGunModel buildRailGunModel()
+    {
+        RailGunModel model = new RailGunModel(getCurrent(), getMass(), DISTANCE_BETWEEN_RODS,
+                RADIUS_OF_ROD, RAIL_LENGTH);
+        if(losses)
+        {
+            model.setFrictionCoefficient(FRICTION_COEFFICIENT);
+            model.setDragConstant(DRAG_CONSTANT);
+            model.setRailResistance(RAIL_RESISTANCE);
+        }
+        return model;
+    }
+
+    /**
+     * Integrates the equations of motion until the armature leaves the rails. Safe to call on any
+     * thread once the rail gun model is built.
+     * @param model : equations of motion, from buildRailGunModel()
+     * @return : state {x, v} of the armature over time
+     * @throws ArithmeticException : if the integration fails before the end of the run
+     */
+    public static DenseTrajectory integrate(RailGunModel model)
+    {
+        DenseTrajectory trajectory = new DenseTrajectory(model.getDimension());
+        model.integrate(new DormandPrince(), trajectory);
+        return trajectory;
+    }
+
+    /**
+     * Creates the loss free sweep of the final velocity over a current x mass range.
+     * @param width : columns (current)
+     * @param height : rows (mass)
+     * @param minCurrent : in amps
+     * @param maxCurrent : in amps
+     * @param minMass : in kg
+     * @param maxMass : in kg
+     * @return : sweep, not yet run
+     */
+    public RailGunSweep createSweep(int width, int height, double minCurrent, double maxCurrent,
+            double minMass, double maxMass)
+    {
+        return new RailGunSweep(width, height, minCurrent, maxCurrent, minMass, maxMass,
+                new RailGunModel(getCurrent(), getMass(), DISTANCE_BETWEEN_RODS, RADIUS_OF_ROD, RAIL_LENGTH));
+    }
+
+    /**
+     * Creates the Monte Carlo study of the tolerances around the current inputs.
+     * @return : sampler, not yet run
+     */
+    public RailGunMonteCarlo createMonteCarlo()
+    {
+        RailGunMonteCarlo monteCarlo = new RailGunMonteCarlo(getCurrent(), getMass(), DISTANCE_BETWEEN_RODS,
+                RADIUS_OF_ROD, RAIL_LENGTH);
+        monteCarlo.setTolerances(CURRENT_TOLERANCE, MASS_TOLERANCE, SEPARATION_TOLERANCE, RADIUS_TOLERANCE);
+        return monteCarlo;
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
@@ -0,0 +1,79 @@
+package packagemodel;
+
+/**
+ * Result of the nodal analysis of a ResistorNetwork driven by a voltage source.
+ * @author patrickspensieri
+ */
+public class NetworkSolution
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    private final double equivalentResistance;      // in ohms, between the source and ground nodes
+    private final double sourceVoltage;             // in volts
+    private final double[] voltages;                // in volts, per node, ground at 0
+    private final double[] branchCurrents;          // in amps, per resistor, flowing from its first node
+    private final int iterations;                   //conjugate gradient iterations
+    private final boolean converged;
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    NetworkSolution(double equivalentResistance, double sourceVoltage, double[] voltages, double[] branchCurrents,
+            int iterations, boolean converged)
+    {
+        this.equivalentResistance = equivalentResistance;
+        this.sourceVoltage = sourceVoltage;
+        this.voltages = voltages;
+        this.branchCurrents = branchCurrents;
+        this.iterations = iterations;
+        this.converged = converged;
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    public double getEquivalentResistance()
+    {
+        return equivalentResistance;
+    }
+
+    /**
+     * Returns the current delivered by the source.
+     * @return : sourceVoltage / equivalentResistance, in amps
+     */
+    public double getSourceCurrent()
+    {
+        return sourceVoltage / equivalentResistance;
+    }
+
+    public double getVoltage(int node)
+    {
+        return voltages[node];
+    }
+
+    public double getBranchCurrent(int branch)
+    {
+        return branchCurrents[branch];
+    }
+
+    public int getNodeCount()
+    {
+        return voltages.length;
+    }
+
+    public int getBranchCount()
+    {
+        return branchCurrents.length;
+    }
+
+    public int getIterations()
+    {
+        return iterations;
+    }
+
+    public boolean isConverged()
+    {
+        return converged;
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
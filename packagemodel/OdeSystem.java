@@ -0,0 +1,22 @@
+package packagemodel;
+
+/**
+ * System of first order ordinary differential equations y' = f(t, y).
+ * @author patrickspensieri
+ */
+public interface OdeSystem
+{
+    /**
+     * Returns the number of state variables.
+     * @return : dimension of y
+     */
+    public int getDimension();
+
+    /**
+     * Computes the derivatives of the state.
+     * @param t : time
+     * @param y : state, length getDimension()
+     * @param dydt : output, derivatives of the state
+     */
+    public void computeDerivatives(double t, double[] y, double[] dydt);
+}
@@ -0,0 +1,105 @@
+package packagemodel;
+
+import java.util.Arrays;
+
+/**
+ * Bank of resistors in parallel whose equivalent resistance is updated in constant time : the total
+ * conductance is kept as a running sum, and changing one resistor only applies the difference of its
+ * conductance. The rounding error of the running sum is removed by an exact (compensated) re-sum after
+ * as many updates as there are resistors, so the cost stays constant on average.
+ * @author patrickspensieri
+ */
+public class ParallelBank
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    private static final int MIN_RESUM_INTERVAL = 1024;
+
+    private final double[] conductances;        // in siemens
+    private double totalConductance;            // in siemens
+    private int updatesSinceResum;
+    private final int resumInterval;
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    /**
+     * Creates a bank of identical resistors.
+     * @param size : number of resistors
+     * @param resistance : resistance of each, in ohms
+     */
+    public ParallelBank(int size, double resistance)
+    {
+        conductances = new double[size];
+        Arrays.fill(conductances, 1.0 / resistance);
+        resumInterval = Math.max(MIN_RESUM_INTERVAL, size);
+        resum();
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    /**
+     * Changes one resistor.
+     * @param i : index of the resistor
+     * @param resistance : new resistance, in ohms
+     */
+    public void setResistance(int i, double resistance)
+    {
+        double conductance = 1.0 / resistance;
+        totalConductance += conductance - conductances[i];
+        conductances[i] = conductance;
+        if(++updatesSinceResum >= resumInterval)
+            resum();
+    }
+
+    /**
+     * Recomputes the total conductance from scratch with Neumaier summation.
+     */
+    public void resum()
+    {
+        double sum = 0;
+        double compensation = 0;
+        for(int i = 0; i < conductances.length; i++)
+        {
+            double g = conductances[i];
+            double t = sum + g;
+            if(Math.abs(sum) >= Math.abs(g))
+                compensation += (sum - t) + g;
+            else
+                compensation += (g - t) + sum;
+            sum = t;
+        }
+        totalConductance = sum + compensation;
+        updatesSinceResum = 0;
+    }
+
+    /**
+     * Returns the equivalent resistance of the bank.
+     * @return : 1 / (sum of 1/R), in ohms
+     */
+    public double getEquivalentResistance()
+    {
+        return 1.0 / totalConductance;
+    }
+
+    /**
+     * Returns the sum of the conductances.
+     * @return : total conductance, in siemens
+     */
+    public double getTotalConductance()
+    {
+        return totalConductance;
+    }
+
+    public double getResistance(int i)
+    {
+        return 1.0 / conductances[i];
+    }
+
+    public int size()
+    {
+        return conductances.length;
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
@@ -0,0 +1,140 @@
+package packagemodel;
+
+/**
+ * Equations of motion of a rail gun armature, state y = {x, v}. The propulsive force is
+ * F = (u0 I^2 ln(d/r)) / 2PI as in the closed-form model, with optional losses :
+ * Coulomb friction on the rails, quadratic air drag, and rail resistance. Rail resistance is modelled
+ * with a constant voltage source, so the current drops as the armature moves away from the breech :
+ * I(x) = I0 / (1 + 2 R' x / R0), where R' is the resistance per meter of one rail and R0 the resistance
+ * of the rest of the circuit.
+ * @author patrickspensieri
+ */
+public class RailGunModel implements OdeSystem
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    public static final double PERMEABILITY_OF_FREE_SPACE = 4.0 * Math.PI / 1.0e7;    // 4pi * 10^-7
+    public static final double GRAVITATIONAL_FORCE = 9.8;
+
+    private double current;                 // in amps, at the breech
+    private double mass;                    // in kg
+    private double railSeparation;          // in meters
+    private double rodRadius;               // in meters
+    private double railLength;              // in meters
+    private double frictionCoefficient;     // kinetic friction coefficient, 0 for none
+    private double dragConstant;            // 1/2 rho Cd A, in kg/m, 0 for none
+    private double railResistance;          // in ohms per meter of rail, 0 for none
+    private double circuitResistance = 1.0e-3;      // in ohms, rest of the circuit
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    public RailGunModel(double current, double mass, double railSeparation, double rodRadius, double railLength)
+    {
+        this.current = current;
+        this.mass = mass;
+        this.railSeparation = railSeparation;
+        this.rodRadius = rodRadius;
+        this.railLength = railLength;
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    @Override
+    public int getDimension()
+    {
+        return 2;
+    }
+
+    @Override
+    public void computeDerivatives(double t, double[] y, double[] dydt)
+    {
+        double x = y[0];
+        double v = y[1];
+        double i = getCurrentAt(x);
+        double propulsion = getForceConstant() * i * i;
+        double drag = dragConstant * v * Math.abs(v);
+        double friction = frictionCoefficient * mass * GRAVITATIONAL_FORCE;
+
+        double net;
+        if(v > 0)
+            net = propulsion - drag - friction;
+        else
+            net = Math.max(0, propulsion - friction);       //static friction holds the armature in place
+
+        dydt[0] = v;
+        dydt[1] = net / mass;
+    }
+
+    /**
+     * Returns the force per squared ampere, (u0 ln(d/r)) / 2PI.
+     * @return : force constant, in N/A^2
+     */
+    public double getForceConstant()
+    {
+        return PERMEABILITY_OF_FREE_SPACE * Math.log(railSeparation / rodRadius) / (2 * Math.PI);
+    }
+
+    /**
+     * Returns the current flowing through the armature at position x.
+     * @param x : distance travelled along the rails, in meters
+     * @return : current, in amps
+     */
+    public double getCurrentAt(double x)
+    {
+        if(railResistance == 0)
+            return current;
+        return current / (1.0 + 2.0 * railResistance * Math.max(x, 0) / circuitResistance);
+    }
+
+    /**
+     * Returns an upper bound for the time to leave the rails, the loss free time with a margin.
+     * @return : time limit for the integration, in seconds
+     */
+    public double getTimeLimit()
+    {
+        double acceleration = getForceConstant() * current * current / mass;
+        return 100.0 * Math.sqrt(2 * railLength / acceleration);
+    }
+
+    /**
+     * Integrates the motion until the armature leaves the rails (or the time limit is reached).
+     * @param integrator : integrator, its stop event is set here
+     * @param trajectory : output, state {x, v} over time
+     * @return : true if the armature left the rails
+     * @throws ArithmeticException : if the integration fails before the end of the run
+     */
+    public boolean integrate(DormandPrince integrator, DenseTrajectory trajectory)
+    {
+        integrator.setStopEvent(0, railLength);
+        integrator.integrate(this, 0, new double[] {0, 0}, getTimeLimit(), trajectory);
+        return integrator.isEventReached();
+    }
+
+    public double getRailLength()
+    {
+        return railLength;
+    }
+
+    public void setFrictionCoefficient(double frictionCoefficient)
+    {
+        this.frictionCoefficient = frictionCoefficient;
+    }
+
+    public void setDragConstant(double dragConstant)
+    {
+        this.dragConstant = dragConstant;
+    }
+
+    public void setRailResistance(double railResistance)
+    {
+        this.railResistance = railResistance;
+    }
+
+    public void setCircuitResistance(double circuitResistance)
+    {
+        this.circuitResistance = circuitResistance;
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
@@ -0,0 +1,246 @@
+package packagemodel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monte Carlo propagation of manufacturing tolerances through the loss free rail gun. Current, mass,
+ * rail separation and rod radius are drawn from normal distributions around their nominal values,
+ * and the final velocity and total time of every sample are counted in two histograms, both
+ * expressed relative to the nominal result. Every worker draws from its own SplittableRandom stream,
+ * split from one seeded root, and merges its counts into the shared histograms after each chunk,
+ * so the histograms can be read while the sampling runs.
+ * @author patrickspensieri
+ */
+public class RailGunMonteCarlo
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    public static final int BINS = 80;
+    private static final int CHUNK = 1 << 16;           //samples between two merges of a worker
+    private static final double RANGE_SIGMAS = 5.0;     //half width of the histograms, in combined sigmas
+
+    private final double current, mass, railSeparation, rodRadius, railLength;
+    private double currentTolerance = 0.05;             //relative standard deviations
+    private double massTolerance = 0.02;
+    private double separationTolerance = 0.01;
+    private double radiusTolerance = 0.05;
+
+    private double nominalVelocity;
+    private double nominalTime;
+    private StreamingHistogram velocities;              //final velocity / nominalVelocity
+    private StreamingHistogram times;                   //total time / nominalTime
+    private final AtomicLong completed = new AtomicLong();
+    private volatile boolean cancelled;
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    public RailGunMonteCarlo(double current, double mass, double railSeparation, double rodRadius, double railLength)
+    {
+        this.current = current;
+        this.mass = mass;
+        this.railSeparation = railSeparation;
+        this.rodRadius = rodRadius;
+        this.railLength = railLength;
+        prepare();
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    /**
+     * Sets the relative standard deviation of every input.
+     * @param current : of the current
+     * @param mass : of the mass
+     * @param separation : of the rail separation
+     * @param radius : of the rod radius
+     */
+    public void setTolerances(double current, double mass, double separation, double radius)
+    {
+        currentTolerance = current;
+        massTolerance = mass;
+        separationTolerance = separation;
+        radiusTolerance = radius;
+        prepare();
+    }
+
+    /**
+     * Draws the samples on every core of the common pool, blocking until done or cancelled.
+     * The histograms are cleared first.
+     * @param samples : total number of samples
+     * @param seed : seed of the root random stream
+     */
+    public void run(long samples, long seed)
+    {
+        velocities.clear();
+        times.clear();
+        completed.set(0);
+        cancelled = false;
+
+        int workers = ForkJoinPool.getCommonPoolParallelism();
+        SplittableRandom root = new SplittableRandom(seed);
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for(int w = 0; w < workers; w++)
+        {
+            long share = samples / workers + ((w < samples % workers) ? 1 : 0);
+            tasks.add(new Worker(root.split(), share));
+        }
+        ForkJoinPool.commonPool().invokeAll(tasks);
+    }
+
+    /**
+     * Stops the workers after their current chunk.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    /**
+     * Computes the nominal results and the histogram ranges from the linearised relative error :
+     * v and t both scale with I, m^(1/2) and ln(d/r)^(1/2).
+     */
+    private void prepare()
+    {
+        double acceleration = forceConstant(railSeparation, rodRadius) * current * current / mass;
+        nominalTime = Math.sqrt(2 * railLength / acceleration);
+        nominalVelocity = acceleration * nominalTime;
+
+        double logRatio = Math.log(railSeparation / rodRadius);
+        double geometry = (separationTolerance * separationTolerance + radiusTolerance * radiusTolerance)
+                / (4 * logRatio * logRatio);
+        double sigma = Math.sqrt(currentTolerance * currentTolerance + massTolerance * massTolerance / 4 + geometry);
+        double halfWidth = Math.max(RANGE_SIGMAS * sigma, 1.0e-6);
+        velocities = new StreamingHistogram(1 - halfWidth, 1 + halfWidth, BINS);
+        times = new StreamingHistogram(1 - halfWidth, 1 + halfWidth, BINS);
+    }
+
+    /**
+     * Returns the force per squared ampere of the rails, (u0 ln(d/r)) / 2PI.
+     * @param separation : rail separation, in meters
+     * @param radius : rod radius, in meters
+     * @return : force constant, in N/A^2
+     */
+    private static double forceConstant(double separation, double radius)
+    {
+        return RailGunModel.PERMEABILITY_OF_FREE_SPACE * Math.log(separation / radius) / (2 * Math.PI);
+    }
+
+    /**
+     * Returns the number of samples merged into the histograms so far.
+     * @return : completed samples
+     */
+    public long getCompletedSamples()
+    {
+        return completed.get();
+    }
+
+    /**
+     * Returns the histogram of final velocity, relative to the nominal final velocity.
+     * @return : histogram
+     */
+    public StreamingHistogram getVelocities()
+    {
+        return velocities;
+    }
+
+    /**
+     * Returns the histogram of total time, relative to the nominal total time.
+     * @return : histogram
+     */
+    public StreamingHistogram getTimes()
+    {
+        return times;
+    }
+
+    public double getNominalVelocity()
+    {
+        return nominalVelocity;
+    }
+
+    public double getNominalTime()
+    {
+        return nominalTime;
+    }
+
+    /**
+     * Draws a share of the samples from its own random stream.
+     */
+    private class Worker implements Callable<Void>
+    {
+        private final SplittableRandom random;
+        private final long samples;
+        private final long[] velocityCounts = new long[BINS];
+        private final long[] timeCounts = new long[BINS];
+        private boolean hasSpare;
+        private double spare;
+
+        Worker(SplittableRandom random, long samples)
+        {
+            this.random = random;
+            this.samples = samples;
+        }
+
+        @Override
+        public Void call()
+        {
+            long done = 0;
+            while(done < samples && !cancelled)
+            {
+                int chunk = (int)Math.min(CHUNK, samples - done);
+                for(int s = 0; s < chunk; s++)
+                {
+                    double i = current * (1 + currentTolerance * gaussian());
+                    double m = mass * (1 + massTolerance * gaussian());
+                    double d = railSeparation * (1 + separationTolerance * gaussian());
+                    double r = rodRadius * (1 + radiusTolerance * gaussian());
+                    if(m <= 0 || r <= 0 || d <= r)
+                    {
+                        s--;                //physically impossible draw, drawn again
+                        continue;
+                    }
+                    double acceleration = forceConstant(d, r) * i * i / m;
+                    double time = Math.sqrt(2 * railLength / acceleration);
+                    velocityCounts[velocities.binOf(acceleration * time / nominalVelocity)]++;
+                    timeCounts[times.binOf(time / nominalTime)]++;
+                }
+                velocities.merge(velocityCounts);
+                times.merge(timeCounts);
+                completed.addAndGet(chunk);
+                done += chunk;
+            }
+            return null;
+        }
+
+        /**
+         * Returns a standard normal deviate (Marsaglia polar method, the second deviate is kept).
+         * @return : gaussian
+         */
+        private double gaussian()
+        {
+            if(hasSpare)
+            {
+                hasSpare = false;
+                return spare;
+            }
+            double u, v, s;
+            do
+            {
+                u = 2 * random.nextDouble() - 1;
+                v = 2 * random.nextDouble() - 1;
+                s = u * u + v * v;
+            }
+            while(s >= 1 || s == 0);
+            double factor = Math.sqrt(-2 * Math.log(s) / s);
+            spare = v * factor;
+            hasSpare = true;
+            return u * factor;
+        }
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
@@ -0,0 +1,219 @@
+package packagemodel;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Final velocity and total time of the loss free rail gun over a current x mass grid. Column i holds
+ * current minCurrent + i*(maxCurrent - minCurrent)/(width - 1), row j holds mass
+ * maxMass - j*(maxMass - minMass)/(height - 1), so row 0 is the heaviest armature (top of an image).
+ * A coarse pass fills the whole grid at once, then full resolution tiles are computed in parallel
+ * on the common fork-join pool and reported to a listener as they complete.
+ * @author patrickspensieri
+ */
+public class RailGunSweep
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    public static final int TILE_SIZE = 64;
+    public static final int COARSE_STRIDE = 8;      //one value computed per 8x8 block in the coarse pass
+
+    private final int width, height;
+    private final double minCurrent, maxCurrent, minMass, maxMass;
+    private final double forceConstant;             // in N/A^2
+    private final double railLength;                // in meters
+    private final double[] velocities;              // in m/s, row-major
+    private final double[] times;                   // in seconds, row-major
+    private final AtomicInteger generation = new AtomicInteger();   //incremented to cancel running tiles
+
+    /**
+     * Receives the tiles of the grid as they are completed, called from worker threads.
+     */
+    public interface TileListener
+    {
+        public void tileCompleted(int x, int y, int tileWidth, int tileHeight);
+    }
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    public RailGunSweep(int width, int height, double minCurrent, double maxCurrent, double minMass, double maxMass,
+            RailGunModel model)
+    {
+        this.width = width;
+        this.height = height;
+        this.minCurrent = minCurrent;
+        this.maxCurrent = maxCurrent;
+        this.minMass = minMass;
+        this.maxMass = maxMass;
+        forceConstant = model.getForceConstant();
+        railLength = model.getRailLength();
+        velocities = new double[width * height];
+        times = new double[width * height];
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    /**
+     * Fills the whole grid at coarse resolution on the calling thread, then submits the full
+     * resolution tiles to the common pool. Any tile still running from a previous call is abandoned.
+     * @param listener : notified of the coarse pass (as one tile covering the grid) and of every tile
+     */
+    public void run(final TileListener listener)
+    {
+        final int runGeneration = generation.incrementAndGet();
+        computeBlock(0, 0, width, height, COARSE_STRIDE);
+        listener.tileCompleted(0, 0, width, height);
+
+        for(int y = 0; y < height; y += TILE_SIZE)
+        {
+            for(int x = 0; x < width; x += TILE_SIZE)
+            {
+                final int tileX = x;
+                final int tileY = y;
+                final int tileWidth = Math.min(TILE_SIZE, width - x);
+                final int tileHeight = Math.min(TILE_SIZE, height - y);
+                ForkJoinPool.commonPool().execute(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        if(generation.get() != runGeneration)
+                            return;
+                        computeBlock(tileX, tileY, tileWidth, tileHeight, 1);
+                        if(generation.get() == runGeneration)
+                            listener.tileCompleted(tileX, tileY, tileWidth, tileHeight);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Abandons the tiles that have not been computed yet.
+     */
+    public void cancel()
+    {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Computes one value per stride x stride block of a region and copies it to the whole block.
+     * @param x : left column of the region
+     * @param y : top row of the region
+     * @param regionWidth : columns in the region
+     * @param regionHeight : rows in the region
+     * @param stride : block size, 1 for full resolution
+     */
+    private void computeBlock(int x, int y, int regionWidth, int regionHeight, int stride)
+    {
+        for(int j = y; j < y + regionHeight; j += stride)
+        {
+            double mass = getMass(j);
+            for(int i = x; i < x + regionWidth; i += stride)
+            {
+                double current = getCurrent(i);
+                double acceleration = forceConstant * current * current / mass;
+                double time = Math.sqrt(2 * railLength / acceleration);
+                double velocity = acceleration * time;
+
+                int blockBottom = Math.min(j + stride, y + regionHeight);
+                int blockRight = Math.min(i + stride, x + regionWidth);
+                for(int row = j; row < blockBottom; row++)
+                {
+                    for(int col = i; col < blockRight; col++)
+                    {
+                        velocities[row * width + col] = velocity;
+                        times[row * width + col] = time;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the current of column i.
+     * @param i : column
+     * @return : current, in amps
+     */
+    public double getCurrent(int i)
+    {
+        return minCurrent + i * (maxCurrent - minCurrent) / (width - 1);
+    }
+
+    /**
+     * Returns the mass of row j.
+     * @param j : row
+     * @return : mass, in kg
+     */
+    public double getMass(int j)
+    {
+        return maxMass - j * (maxMass - minMass) / (height - 1);
+    }
+
+    /**
+     * Returns the final velocities, row-major, written by the worker threads.
+     * @return : velocities
+     */
+    public double[] getVelocities()
+    {
+        return velocities;
+    }
+
+    /**
+     * Returns the total times, row-major, written by the worker threads.
+     * @return : times
+     */
+    public double[] getTimes()
+    {
+        return times;
+    }
+
+    /**
+     * Returns the lowest final velocity of the grid (lowest current, heaviest mass).
+     * @return : velocity, in m/s
+     */
+    public double getMinVelocity()
+    {
+        return Math.sqrt(2 * railLength * forceConstant * minCurrent * minCurrent / maxMass);
+    }
+
+    /**
+     * Returns the highest final velocity of the grid (highest current, lightest mass).
+     * @return : velocity, in m/s
+     */
+    public double getMaxVelocity()
+    {
+        return Math.sqrt(2 * railLength * forceConstant * maxCurrent * maxCurrent / minMass);
+    }
+
+    /**
+     * Returns the shortest total time of the grid (highest current, lightest mass).
+     * @return : time, in seconds
+     */
+    public double getMinTime()
+    {
+        return Math.sqrt(2 * railLength * minMass / (forceConstant * maxCurrent * maxCurrent));
+    }
+
+    /**
+     * Returns the longest total time of the grid (lowest current, heaviest mass).
+     * @return : time, in seconds
+     */
+    public double getMaxTime()
+    {
+        return Math.sqrt(2 * railLength * maxMass / (forceConstant * minCurrent * minCurrent));
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
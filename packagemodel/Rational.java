@@ -0,0 +1,378 @@
+package packagemodel;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Immutable exact fraction numerator/denominator, always reduced and with a positive denominator.
+ * Both parts are kept in longs while they fit; only an operation that overflows switches the result to
+ * BigInteger, and a BigInteger result that fits again after reduction goes back to longs.
+ * @author patrickspensieri
+ */
+public final class Rational implements Comparable<Rational>
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    public static final Rational ZERO = new Rational(0, 1);
+    public static final Rational ONE = new Rational(1, 1);
+
+    private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+    private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+    private static final long EXACT_DOUBLE_LIMIT = 1L << 53;    //longs below this convert to double exactly
+    private static final int QUOTIENT_BITS = 55;                //bits of the quotient rounded by doubleValue()
+
+    private final long num;
+    private final long den;
+    private final BigInteger bigNum;        //null while the value fits in num and den
+    private final BigInteger bigDen;
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    private Rational(long num, long den)
+    {
+        this.num = num;
+        this.den = den;
+        this.bigNum = null;
+        this.bigDen = null;
+    }
+
+    private Rational(BigInteger bigNum, BigInteger bigDen)
+    {
+        this.num = 0;
+        this.den = 1;
+        this.bigNum = bigNum;
+        this.bigDen = bigDen;
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // FACTORY METHODS /////////////////////////////////////////////////////////
+    /**
+     * Returns the reduced fraction num/den.
+     * @param num : numerator
+     * @param den : denominator, not 0
+     * @return : num/den
+     */
+    public static Rational valueOf(long num, long den)
+    {
+        if(den == 0)
+            throw new ArithmeticException("denominator is zero");
+        if(num == Long.MIN_VALUE || den == Long.MIN_VALUE)
+            return valueOf(BigInteger.valueOf(num), BigInteger.valueOf(den));
+
+        if(den < 0)
+        {
+            num = -num;
+            den = -den;
+        }
+        long g = gcd(Math.abs(num), den);
+        return new Rational(num / g, den / g);
+    }
+
+    /**
+     * Returns the reduced fraction num/den, stored in longs when it fits.
+     * @param num : numerator
+     * @param den : denominator, not 0
+     * @return : num/den
+     */
+    public static Rational valueOf(BigInteger num, BigInteger den)
+    {
+        if(den.signum() == 0)
+            throw new ArithmeticException("denominator is zero");
+        if(den.signum() < 0)
+        {
+            num = num.negate();
+            den = den.negate();
+        }
+        BigInteger g = num.gcd(den);
+        if(!g.equals(BigInteger.ONE))
+        {
+            num = num.divide(g);
+            den = den.divide(g);
+        }
+        if(fitsInLong(num) && fitsInLong(den))
+            return new Rational(num.longValue(), den.longValue());
+        return new Rational(num, den);
+    }
+
+    /**
+     * Parses "p/q", an integer or a decimal such as "0.25" (or "1.5/2") into an exact fraction.
+     * @param text : the text to parse
+     * @return : the fraction
+     * @throws NumberFormatException : when text is not a number or fraction
+     */
+    public static Rational parse(String text)
+    {
+        String trimmed = text.trim();
+        int slash = trimmed.indexOf('/');
+        if(slash < 0)
+            return valueOf(new BigDecimal(trimmed));
+
+        Rational numerator = valueOf(new BigDecimal(trimmed.substring(0, slash).trim()));
+        Rational denominator = valueOf(new BigDecimal(trimmed.substring(slash + 1).trim()));
+        if(denominator.signum() == 0)
+            throw new NumberFormatException("denominator is zero in " + text);
+        return numerator.divide(denominator);
+    }
+
+    /**
+     * Parses text like parse(text) but returns null instead of throwing.
+     * @param text : the text to parse, may be null
+     * @return : the fraction or null
+     */
+    public static Rational tryParse(String text)
+    {
+        if(text == null || text.trim().isEmpty())
+            return null;
+        try
+        {
+            return parse(text);
+        }
+        catch(NumberFormatException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the exact fraction equal to a decimal value.
+     * @param value : decimal value
+     * @return : the fraction
+     */
+    private static Rational valueOf(BigDecimal value)
+    {
+        if(value.scale() <= 0)
+            return valueOf(value.toBigIntegerExact(), BigInteger.ONE);
+        return valueOf(value.unscaledValue(), BigInteger.TEN.pow(value.scale()));
+    }
+
+    // END FACTORY METHODS /////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    /**
+     * Returns this + other.
+     * @param other : addend
+     * @return : the sum
+     */
+    public Rational add(Rational other)
+    {
+        if(bigNum == null && other.bigNum == null)
+        {
+            try
+            {
+                //a/b + c/d over lcm(b, d) keeps intermediate values small
+                long g = gcd(den, other.den);
+                long left = Math.multiplyExact(num, other.den / g);
+                long right = Math.multiplyExact(other.num, den / g);
+                return valueOf(Math.addExact(left, right), Math.multiplyExact(den / g, other.den));
+            }
+            catch(ArithmeticException overflow)
+            {
+                //falls through to the BigInteger path
+            }
+        }
+        return valueOf(numerator().multiply(other.denominator()).add(other.numerator().multiply(denominator())),
+                denominator().multiply(other.denominator()));
+    }
+
+    /**
+     * Returns this - other.
+     * @param other : subtrahend
+     * @return : the difference
+     */
+    public Rational subtract(Rational other)
+    {
+        return add(other.negate());
+    }
+
+    /**
+     * Returns this * other.
+     * @param other : factor
+     * @return : the product
+     */
+    public Rational multiply(Rational other)
+    {
+        if(signum() == 0 || other.signum() == 0)
+            return ZERO;
+        if(bigNum == null && other.bigNum == null)
+        {
+            try
+            {
+                //cross reduction first, the result is then already reduced
+                long g1 = gcd(Math.abs(num), other.den);
+                long g2 = gcd(Math.abs(other.num), den);
+                long n = Math.multiplyExact(num / g1, other.num / g2);
+                long d = Math.multiplyExact(den / g2, other.den / g1);
+                if(n != Long.MIN_VALUE)
+                    return new Rational(n, d);
+            }
+            catch(ArithmeticException overflow)
+            {
+                //falls through to the BigInteger path
+            }
+        }
+        return valueOf(numerator().multiply(other.numerator()), denominator().multiply(other.denominator()));
+    }
+
+    /**
+     * Returns this / other.
+     * @param other : divisor, not 0
+     * @return : the quotient
+     */
+    public Rational divide(Rational other)
+    {
+        if(other.signum() == 0)
+            throw new ArithmeticException("division by zero");
+        return multiply(other.reciprocal());
+    }
+
+    /**
+     * Returns -this.
+     * @return : the opposite
+     */
+    public Rational negate()
+    {
+        if(bigNum == null && num != Long.MIN_VALUE)
+            return new Rational(-num, den);
+        return valueOf(numerator().negate(), denominator());
+    }
+
+    /**
+     * Returns 1/this.
+     * @return : the reciprocal
+     */
+    public Rational reciprocal()
+    {
+        if(bigNum == null)
+            return valueOf(den, num);
+        return valueOf(bigDen, bigNum);
+    }
+
+    /**
+     * Returns -1, 0 or 1 as this is negative, zero or positive.
+     * @return : the sign
+     */
+    public int signum()
+    {
+        if(bigNum == null)
+            return Long.signum(num);
+        return bigNum.signum();
+    }
+
+    /**
+     * Returns true while numerator and denominator are held in longs.
+     * @return : true for the long based representation
+     */
+    public boolean isCompact()
+    {
+        return bigNum == null;
+    }
+
+    /**
+     * Returns the numerator.
+     * @return : numerator
+     */
+    public BigInteger numerator()
+    {
+        return bigNum == null ? BigInteger.valueOf(num) : bigNum;
+    }
+
+    /**
+     * Returns the denominator, always positive.
+     * @return : denominator
+     */
+    public BigInteger denominator()
+    {
+        return bigDen == null ? BigInteger.valueOf(den) : bigDen;
+    }
+
+    /**
+     * Returns the double closest to this fraction, ties to even. Exact for results in the normal
+     * range of double, a subnormal result may be one unit off.
+     * @return : the value as a double
+     */
+    public double doubleValue()
+    {
+        //both operands are exact doubles, and IEEE division rounds once
+        if(bigNum == null && Math.abs(num) < EXACT_DOUBLE_LIMIT && den < EXACT_DOUBLE_LIMIT)
+            return (double)num / den;
+        if(signum() == 0)
+            return 0.0;
+
+        //integer quotient of QUOTIENT_BITS or QUOTIENT_BITS + 1 bits : 53 significant bits, a round bit
+        //and a sticky bit recording a non zero remainder, so the conversion to double rounds once
+        BigInteger n = numerator().abs();
+        BigInteger d = denominator();
+        int shift = QUOTIENT_BITS - (n.bitLength() - d.bitLength());
+        if(shift > 0)
+            n = n.shiftLeft(shift);
+        else
+            d = d.shiftLeft(-shift);
+        BigInteger[] qr = n.divideAndRemainder(d);
+        long quotient = qr[0].longValue();
+        if(qr[1].signum() != 0)
+            quotient |= 1;
+        double value = Math.scalb((double)quotient, -shift);
+        return signum() < 0 ? -value : value;
+    }
+
+    @Override
+    public int compareTo(Rational other)
+    {
+        return subtract(other).signum();
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if(!(o instanceof Rational))
+            return false;
+        Rational other = (Rational)o;
+        if(bigNum == null && other.bigNum == null)
+            return num == other.num && den == other.den;
+        return numerator().equals(other.numerator()) && denominator().equals(other.denominator());
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * numerator().hashCode() + denominator().hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        if(bigNum == null)
+            return den == 1 ? Long.toString(num) : num + "/" + den;
+        return bigDen.equals(BigInteger.ONE) ? bigNum.toString() : bigNum + "/" + bigDen;
+    }
+
+    /**
+     * Greatest common divisor of two non negative longs, 1 when both are 0.
+     * @param a : first value
+     * @param b : second value
+     * @return : gcd(a, b)
+     */
+    private static long gcd(long a, long b)
+    {
+        while(b != 0)
+        {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a == 0 ? 1 : a;
+    }
+
+    /**
+     * Returns true if value lies in the long range.
+     * @param value : value tested
+     * @return : true if value.longValue() is exact
+     */
+    private static boolean fitsInLong(BigInteger value)
+    {
+        return value.compareTo(LONG_MIN) > 0 && value.compareTo(LONG_MAX) <= 0;
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
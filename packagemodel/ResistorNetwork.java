@@ -0,0 +1,276 @@
+package packagemodel;
+
+import java.util.Arrays;
+
+/**
+ * Arbitrary network of resistors between numbered nodes, driven by a voltage source connected
+ * between a source node and a ground node. It is solved by nodal analysis : the conductance matrix
+ * of every node but ground is assembled in compressed sparse row form, and a unit current injected at
+ * the source node is solved for with a preconditioned conjugate gradient. The potential of the source
+ * node is then the equivalent resistance, and every potential is scaled to the source voltage.
+ * Injecting a current rather than adding the voltage source as an extra row keeps the matrix symmetric
+ * positive definite, as the conjugate gradient requires. Every node must be connected to ground.
+ * @author patrickspensieri
+ */
+public class ResistorNetwork
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int nodeCount;
+    private final int sourceNode;
+    private final int groundNode;
+    private int[] from;
+    private int[] to;
+    private double[] resistances;       // in ohms
+    private int branchCount;
+
+    private SparseMatrix matrix;        //built on the first solve after the topology changed
+    private int[] branchEntries;        //4 entries per branch : (a,a) (b,b) (a,b) (b,a), -1 when on ground
+    private double[] unitPotentials;    //solution for a unit current, kept as the next initial guess
+    private double[] rightHandSide;
+    private final ConjugateGradient solver = new ConjugateGradient();
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    public ResistorNetwork(int nodeCount, int sourceNode, int groundNode)
+    {
+        if(sourceNode == groundNode)
+            throw new IllegalArgumentException("The source and ground nodes must differ");
+        this.nodeCount = nodeCount;
+        this.sourceNode = sourceNode;
+        this.groundNode = groundNode;
+        from = new int[INITIAL_CAPACITY];
+        to = new int[INITIAL_CAPACITY];
+        resistances = new double[INITIAL_CAPACITY];
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    /**
+     * Adds a resistor between two nodes.
+     * @param a : first node
+     * @param b : second node
+     * @param resistance : in ohms, positive
+     * @return : index of the branch
+     */
+    public int addResistor(int a, int b, double resistance)
+    {
+        if(branchCount == from.length)
+        {
+            from = Arrays.copyOf(from, branchCount * 2);
+            to = Arrays.copyOf(to, branchCount * 2);
+            resistances = Arrays.copyOf(resistances, branchCount * 2);
+        }
+        from[branchCount] = a;
+        to[branchCount] = b;
+        resistances[branchCount] = resistance;
+        matrix = null;
+        return branchCount++;
+    }
+
+    /**
+     * Changes the value of a resistor, the topology (and the sparsity pattern) is unchanged.
+     * @param branch : index of the branch
+     * @param resistance : in ohms, positive
+     */
+    public void setResistance(int branch, double resistance)
+    {
+        resistances[branch] = resistance;
+    }
+
+    /**
+     * Solves the network for a source voltage.
+     * @param voltage : source voltage, in volts
+     * @return : equivalent resistance, node voltages and branch currents
+     */
+    public NetworkSolution solve(double voltage)
+    {
+        if(matrix == null)
+            buildPattern();
+
+        matrix.clearValues();
+        for(int k = 0; k < branchCount; k++)
+        {
+            double g = 1.0 / resistances[k];
+            for(int s = 0; s < 4; s++)
+            {
+                int entry = branchEntries[4 * k + s];
+                if(entry >= 0)
+                    matrix.addToEntry(entry, (s < 2) ? g : -g);
+            }
+        }
+
+        int iterations = solver.solve(matrix, rightHandSide, unitPotentials);
+        double equivalentResistance = unitPotentials[reducedIndex(sourceNode)];
+        double scale = voltage / equivalentResistance;
+
+        double[] voltages = new double[nodeCount];
+        for(int node = 0; node < nodeCount; node++)
+        {
+            int row = reducedIndex(node);
+            voltages[node] = (row < 0) ? 0 : scale * unitPotentials[row];
+        }
+        double[] currents = new double[branchCount];
+        for(int k = 0; k < branchCount; k++)
+            currents[k] = (voltages[from[k]] - voltages[to[k]]) / resistances[k];
+
+        return new NetworkSolution(equivalentResistance, voltage, voltages, currents, iterations,
+                solver.isConverged());
+    }
+
+    /**
+     * Builds the sparsity pattern of the reduced conductance matrix from the branches.
+     */
+    private void buildPattern()
+    {
+        int size = nodeCount - 1;
+        int[] rows = new int[4 * branchCount + size];
+        int[] columns = new int[4 * branchCount + size];
+        branchEntries = new int[4 * branchCount];
+        int count = 0;
+        //every diagonal entry exists, even for a node without any resistor
+        for(int i = 0; i < size; i++)
+        {
+            rows[count] = i;
+            columns[count] = i;
+            count++;
+        }
+        for(int k = 0; k < branchCount; k++)
+        {
+            int a = reducedIndex(from[k]);
+            int b = reducedIndex(to[k]);
+            int[] entryRows = {a, b, a, b};
+            int[] entryColumns = {a, b, b, a};
+            for(int s = 0; s < 4; s++)
+            {
+                if(entryRows[s] < 0 || entryColumns[s] < 0)
+                    branchEntries[4 * k + s] = -1;
+                else
+                {
+                    rows[count] = entryRows[s];
+                    columns[count] = entryColumns[s];
+                    branchEntries[4 * k + s] = count++;
+                }
+            }
+        }
+        matrix = new SparseMatrix(size, rows, columns, count);
+        unitPotentials = new double[size];
+        rightHandSide = new double[size];
+        rightHandSide[reducedIndex(sourceNode)] = 1.0;
+    }
+
+    /**
+     * Returns the row of a node in the reduced system, -1 for the ground node.
+     * @param node : node
+     * @return : row
+     */
+    private int reducedIndex(int node)
+    {
+        if(node == groundNode)
+            return -1;
+        return (node < groundNode) ? node : node - 1;
+    }
+
+    public int getNodeCount()
+    {
+        return nodeCount;
+    }
+
+    public int getBranchCount()
+    {
+        return branchCount;
+    }
+
+    public double getResistance(int branch)
+    {
+        return resistances[branch];
+    }
+
+    /**
+     * Sets the stopping criteria of the conjugate gradient.
+     * @param tolerance : residual norm relative to the injected current
+     * @param maxIterations : iteration limit, 0 for 10 times the number of nodes
+     */
+    public void setStoppingCriteria(double tolerance, int maxIterations)
+    {
+        solver.setStoppingCriteria(tolerance, maxIterations);
+    }
+
+    /**
+     * Returns resistors in parallel between node 0 (source) and node 1 (ground), branch i is resistances[i].
+     * @param resistances : in ohms
+     * @return : network
+     */
+    public static ResistorNetwork parallel(double[] resistances)
+    {
+        ResistorNetwork network = new ResistorNetwork(2, 0, 1);
+        for(double r : resistances)
+            network.addResistor(0, 1, r);
+        return network;
+    }
+
+    /**
+     * Returns a ladder : each section is a series resistor along the top rail followed by a shunt
+     * resistor to the bottom rail. Node 0 is the source, the bottom rail is ground.
+     * @param sections : number of sections
+     * @param series : series resistance, in ohms
+     * @param shunt : shunt resistance, in ohms
+     * @return : network
+     */
+    public static ResistorNetwork ladder(int sections, double series, double shunt)
+    {
+        ResistorNetwork network = new ResistorNetwork(sections + 2, 0, sections + 1);
+        for(int i = 0; i < sections; i++)
+        {
+            network.addResistor(i, i + 1, series);
+            network.addResistor(i + 1, sections + 1, shunt);
+        }
+        return network;
+    }
+
+    /**
+     * Returns a Wheatstone bridge : r1 from source to a, r2 from source to b, r3 from a to ground,
+     * r4 from b to ground and r5 between a and b. Nodes are source 0, a 1, b 2, ground 3.
+     * @return : network
+     */
+    public static ResistorNetwork bridge(double r1, double r2, double r3, double r4, double r5)
+    {
+        ResistorNetwork network = new ResistorNetwork(4, 0, 3);
+        network.addResistor(0, 1, r1);
+        network.addResistor(0, 2, r2);
+        network.addResistor(1, 3, r3);
+        network.addResistor(2, 3, r4);
+        network.addResistor(1, 2, r5);
+        return network;
+    }
+
+    /**
+     * Returns a rectangular mesh with a resistor on every edge, driven between opposite corners.
+     * Node (column, row) is row * columns + column, the source is node 0 and ground the last node.
+     * @param columns : nodes per row
+     * @param rows : nodes per column
+     * @param resistance : resistance of every edge, in ohms
+     * @return : network
+     */
+    public static ResistorNetwork grid(int columns, int rows, double resistance)
+    {
+        ResistorNetwork network = new ResistorNetwork(columns * rows, 0, columns * rows - 1);
+        for(int row = 0; row < rows; row++)
+        {
+            for(int column = 0; column < columns; column++)
+            {
+                int node = row * columns + column;
+                if(column + 1 < columns)
+                    network.addResistor(node, node + 1, resistance);
+                if(row + 1 < rows)
+                    network.addResistor(node, node + columns, resistance);
+            }
+        }
+        return network;
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
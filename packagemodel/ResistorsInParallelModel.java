@@ -0,0 +1,269 @@
+package packagemodel;
+
+import java.util.Arrays;
+
+/**
+ * Headless model of resistors in parallel across a voltage source. The voltage and the resistances feed
+ * a compute graph giving the equivalent resistance, the source current and the current of every branch,
+ * either from the running conductance total of a ParallelBank (incremental mode) or from the nodal
+ * analysis of the circuit. The same branches build the transient circuit switched onto the source.
+ * @author patrickspensieri
+ */
+public class ResistorsInParallelModel
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    public static final double CAPACITANCE = 1.0e-3;        // in farads
+    public static final double INDUCTANCE = 1.0e-2;         // in henries
+    public static final double MIN_TRANSIENT_TIME_CONSTANT = 1.0e-3;  // in seconds, for a purely resistive circuit
+
+    private final int numberRes;
+    private final ComputeGraph graph = new ComputeGraph();
+    private final ResistorNetwork network;      //the circuit, solved by nodal analysis
+    private NetworkSolution solution;           //last solution of network, null if it did not converge
+    private final ParallelBank bank;            //running conductance total, used in incremental mode
+    private final int voltageNode, modeNode;    //modeNode is 1 when req comes from bank, 0 when network is solved
+    private final int solutionNode;             //version of the network solution, bumped only in network mode
+    private final int[] resNodes;
+    private final int conductanceNode, reqNode, currentNode;
+    private final int[] branchNodes;
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    /**
+     * Creates the model in incremental mode.
+     * @param numberRes : number of resistors
+     * @param voltage : source voltage, in volts
+     * @param resistance : initial resistance of each resistor, in ohms
+     */
+    public ResistorsInParallelModel(int numberRes, double voltage, double resistance)
+    {
+        this.numberRes = numberRes;
+        bank = new ParallelBank(numberRes, resistance);
+        voltageNode = graph.addInput(voltage);
+        resNodes = new int[numberRes];
+        for(int i = 0; i < numberRes; i++)
+            resNodes[i] = graph.addInput(resistance);
+        modeNode = graph.addInput(1);
+        solutionNode = graph.addInput(0);
+
+        // total conductance kept by the bank, in constant time per resistor change
+        conductanceNode = graph.addNode(new ComputeGraph.Function()
+        {
+            @Override
+            public double compute(ComputeGraph g)
+            {
+                return bank.getTotalConductance();
+            }
+        }, resNodes);
+
+        // req either comes from the bank (incremental mode) or is solved by nodal analysis of the circuit,
+        // the source current and branch currents are then read from the same solution. A solve that does
+        // not converge is dropped and the bank answers instead
+        double[] resistances = new double[numberRes];
+        Arrays.fill(resistances, resistance);
+        network = ResistorNetwork.parallel(resistances);
+        int[] solutionInputs = Arrays.copyOf(resNodes, numberRes + 3);
+        solutionInputs[numberRes] = voltageNode;
+        solutionInputs[numberRes + 1] = conductanceNode;
+        solutionInputs[numberRes + 2] = modeNode;
+        reqNode = graph.addNode(new ComputeGraph.Function()
+        {
+            @Override
+            public double compute(ComputeGraph g)
+            {
+                if(g.get(modeNode) != 0)
+                    return 1 / g.get(conductanceNode);
+                for(int i = 0; i < resNodes.length; i++)
+                    network.setResistance(i, g.get(resNodes[i]));
+                solution = network.solve(g.get(voltageNode));
+                if(!solution.isConverged())
+                {
+                    solution = null;
+                    return 1 / g.get(conductanceNode);
+                }
+                return solution.getEquivalentResistance();
+            }
+        }, solutionInputs);
+
+        currentNode = graph.addNode(new ComputeGraph.Function()
+        {
+            @Override
+            public double compute(ComputeGraph g)
+            {
+                if(g.get(modeNode) != 0)
+                    return g.get(voltageNode) * g.get(conductanceNode);
+                g.get(reqNode);
+                if(solution == null)
+                    return g.get(voltageNode) * g.get(conductanceNode);
+                return solution.getSourceCurrent();
+            }
+        }, reqNode, voltageNode, conductanceNode, modeNode);
+
+        // a branch only depends on its own resistor in incremental mode, the network solution reaches it
+        // through solutionNode, so one slider does not invalidate every branch of a large bank
+        branchNodes = new int[numberRes];
+        for(int i = 0; i < numberRes; i++)
+        {
+            final int branch = i;
+            branchNodes[i] = graph.addNode(new ComputeGraph.Function()
+            {
+                @Override
+                public double compute(ComputeGraph g)
+                {
+                    //every branch of the bank sees the full source voltage
+                    if(g.get(modeNode) != 0)
+                        return g.get(voltageNode) / g.get(resNodes[branch]);
+                    g.get(reqNode);
+                    if(solution == null)
+                        return g.get(voltageNode) / g.get(resNodes[branch]);
+                    return solution.getBranchCurrent(branch);
+                }
+            }, solutionNode, resNodes[i], voltageNode, modeNode);
+        }
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    /**
+     * Changes one resistor. The bank is updated before the graph input, so the conductance node
+     * reads the new total. In incremental mode only this branch, req and the source current are
+     * invalidated.
+     * @param i : index of the resistor
+     * @param resistance : in ohms, positive
+     */
+    public void setResistance(int i, double resistance)
+    {
+        bank.setResistance(i, resistance);
+        graph.set(resNodes[i], resistance);
+        invalidateSolution();
+    }
+
+    public void setVoltage(double voltage)
+    {
+        graph.set(voltageNode, voltage);
+        invalidateSolution();
+    }
+
+    /**
+     * Marks the branch currents of the network solution dirty, they all change with any resistor
+     * or the voltage. Does nothing in incremental mode, where every branch has its own inputs.
+     */
+    private void invalidateSolution()
+    {
+        if(!isIncremental())
+            graph.set(solutionNode, graph.get(solutionNode) + 1);
+    }
+
+    /**
+     * Selects where req comes from.
+     * @param incremental : true for the running total of the bank, false to solve the network
+     */
+    public void setIncremental(boolean incremental)
+    {
+        graph.set(modeNode, incremental ? 1 : 0);
+    }
+
+    public int getNumberRes()
+    {
+        return numberRes;
+    }
+
+    public double getVoltage()
+    {
+        return graph.get(voltageNode);
+    }
+
+    public double getResistance(int i)
+    {
+        return graph.get(resNodes[i]);
+    }
+
+    public boolean isIncremental()
+    {
+        return graph.get(modeNode) != 0;
+    }
+
+    public double getEquivalentResistance()
+    {
+        return graph.get(reqNode);
+    }
+
+    /**
+     * Returns the current delivered by the source.
+     * @return : voltage / req, in amps
+     */
+    public double getCurrent()
+    {
+        return graph.get(currentNode);
+    }
+
+    /**
+     * Returns the current through one resistor.
+     * @param i : index of the resistor
+     * @return : in amps
+     */
+    public double getBranchCurrent(int i)
+    {
+        return graph.get(branchNodes[i]);
+    }
+
+    /**
+     * Returns the graph computing req and the currents, for observers of its nodes.
+     * @return : compute graph
+     */
+    public ComputeGraph getGraph()
+    {
+        return graph;
+    }
+
+    public int getVoltageNode()
+    {
+        return voltageNode;
+    }
+
+    public int getReqNode()
+    {
+        return reqNode;
+    }
+
+    public int getCurrentNode()
+    {
+        return currentNode;
+    }
+
+    public int getBranchCurrentNode(int i)
+    {
+        return branchNodes[i];
+    }
+
+    /**
+     * Builds the circuit of the current resistances switched onto the source at t = 0, each resistor
+     * in series with a reactive element, and sets its time step to cover five of its longest time
+     * constants. The source is ideal, as in the DC circuit, so both settle to the same currents.
+     * The circuit is reset, ready to be stepped.
+     * @param elements : element in series with each resistor
+     * @param method : integration method
+     * @param steps : number of time steps covering the response
+     * @return : transient circuit, independent of this model
+     */
+    public TransientParallelCircuit createTransientCircuit(TransientParallelCircuit.Element[] elements,
+            TransientParallelCircuit.Method method, int steps)
+    {
+        TransientParallelCircuit circuit = new TransientParallelCircuit(numberRes);
+        for(int i = 0; i < numberRes; i++)
+        {
+            double value = (elements[i] == TransientParallelCircuit.Element.CAPACITOR) ? CAPACITANCE : INDUCTANCE;
+            circuit.setBranch(i, getResistance(i), elements[i], value);
+        }
+        circuit.setSource(getVoltage(), 0);
+        circuit.setMethod(method);
+        double duration = 5 * Math.max(circuit.getLongestTimeConstant(), MIN_TRANSIENT_TIME_CONSTANT);
+        circuit.setTimeStep(duration / steps);
+        circuit.reset();
+        return circuit;
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
@@ -0,0 +1,100 @@
+package packagemodel;
+
+/**
+ * Fixed capacity history of timestamped (x, y) samples in primitive arrays. Once full, every new
+ * sample overwrites the oldest one, so memory stays bounded however long the recording runs.
+ * Samples are indexed from 0 (oldest) to size()-1 (newest).
+ * @author patrickspensieri
+ */
+public class SampleRingBuffer
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    private final double[] x, y, times;
+    private int head;                   //slot of the next sample
+    private int size;
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    public SampleRingBuffer(int capacity)
+    {
+        x = new double[capacity];
+        y = new double[capacity];
+        times = new double[capacity];
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    /**
+     * Records a sample, overwriting the oldest one when full.
+     * @param sampleX : x value
+     * @param sampleY : y value
+     * @param time : timestamp, in seconds, not less than the previous one
+     */
+    public void add(double sampleX, double sampleY, double time)
+    {
+        x[head] = sampleX;
+        y[head] = sampleY;
+        times[head] = time;
+        head = (head + 1) % x.length;
+        if(size < x.length)
+            size++;
+    }
+
+    /**
+     * Drops the samples recorded before a given time.
+     * @param time : timestamp, in seconds
+     */
+    public void discardBefore(double time)
+    {
+        while(size > 0 && getTime(0) < time)
+            size--;
+    }
+
+    /**
+     * Removes every sample.
+     */
+    public void clear()
+    {
+        size = 0;
+    }
+
+    /**
+     * Returns the slot of the i-th oldest sample.
+     * @param i : index, 0 is the oldest
+     * @return : slot in the arrays
+     */
+    private int slot(int i)
+    {
+        int slot = head - size + i;
+        return (slot < 0) ? slot + x.length : slot;
+    }
+
+    public double getX(int i)
+    {
+        return x[slot(i)];
+    }
+
+    public double getY(int i)
+    {
+        return y[slot(i)];
+    }
+
+    public double getTime(int i)
+    {
+        return times[slot(i)];
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public int capacity()
+    {
+        return x.length;
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
@@ -0,0 +1,134 @@
+package packagemodel;
+
+/**
+ * Convergence acceleration of a sequence of partial sums S(1), S(2), ... stored in a primitive buffer.
+ * Aitken and Wynn-epsilon (Shanks) target geometric-like convergence, including alternating series,
+ * while Richardson extrapolation targets errors decreasing like 1/n.
+ * @author patrickspensieri
+ */
+public final class SeriesAcceleration
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    private static final double HUGE = 1.0e60;          //stands in for 1/0 in the epsilon table
+    private static final double TINY = 1.0e-300;
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    private SeriesAcceleration()
+    {
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    /**
+     * Applies Aitken's delta-squared process, out[i] = s[i] - (s[i+1] - s[i])^2 / (s[i+2] - 2s[i+1] + s[i]).
+     * @param s : partial sums
+     * @param count : number of valid partial sums
+     * @param out : destination, length at least count - 2
+     * @return : the number of accelerated values written (count - 2, or 0)
+     */
+    public static int aitken(double[] s, int count, double[] out)
+    {
+        for(int i = 0; i < count - 2; i++)
+        {
+            double delta = s[i + 1] - s[i];
+            double delta2 = s[i + 2] - 2 * s[i + 1] + s[i];
+            if(Math.abs(delta2) <= TINY)
+                out[i] = s[i + 2];             //sequence already stationary
+            else
+                out[i] = s[i] - delta * delta / delta2;
+        }
+        return Math.max(count - 2, 0);
+    }
+
+    /**
+     * Applies Wynn's epsilon algorithm (the Shanks transformation of every order), one partial sum at a time.
+     * out[n] is the best estimate of the limit available once S(n + 1) is known. The table is kept as a single
+     * anti-diagonal in work, so memory is O(count) and time O(count^2), meant for a few dozen terms.
+     * @param s : partial sums
+     * @param count : number of valid partial sums
+     * @param work : scratch buffer, length at least count
+     * @param out : destination, length at least count
+     */
+    public static void wynnEpsilon(double[] s, int count, double[] work, double[] out)
+    {
+        double previous = Double.NaN;
+        for(int n = 0; n < count; n++)
+        {
+            out[n] = wynnEpsilonStep(s, n, work, previous);
+            previous = out[n];
+        }
+    }
+
+    /**
+     * Adds S(n + 1) to the epsilon table of wynnEpsilon, so the estimates can be computed while the
+     * partial sums are, e.g. to stop summing once the estimate has converged.
+     * @param s : partial sums, s[n] is the one added
+     * @param n : index of the partial sum added, the table in work holds s[0..n-1]
+     * @param work : scratch buffer, length at least n + 1, kept between calls
+     * @param previous : estimate returned for s[n - 1], NaN when n is 0
+     * @return : the best estimate of the limit once S(n + 1) is known
+     */
+    public static double wynnEpsilonStep(double[] s, int n, double[] work, double previous)
+    {
+        work[n] = s[n];
+        double aux2 = 0;
+        for(int j = n; j >= 1; j--)
+        {
+            double aux1 = aux2;
+            aux2 = work[j - 1];
+            double diff = work[j] - aux2;
+            if(Math.abs(diff) <= TINY)
+                work[j - 1] = HUGE;
+            else
+                work[j - 1] = aux1 + 1.0 / diff;
+        }
+
+        //even columns of the table hold the estimates of the limit
+        double estimate = (n % 2 == 0) ? work[0] : work[1];
+        if(Double.isNaN(estimate) || Math.abs(estimate) >= HUGE / 2)
+            estimate = Double.isNaN(previous) ? s[n] : previous;
+        return estimate;
+    }
+
+    /**
+     * Richardson extrapolation of the given order over the last order + 1 partial sums, assuming
+     * S(n) = L + c1/n + c2/n^2 + ...
+     * @param s : partial sums, s[i] = S(i + 1)
+     * @param count : number of valid partial sums
+     * @param order : extrapolation order k, uses S(count - k)..S(count)
+     * @return : estimate of the limit L
+     */
+    public static double richardson(double[] s, int count, int order)
+    {
+        int k = Math.min(order, count - 1);
+        if(k <= 0)
+            return count > 0 ? s[count - 1] : Double.NaN;
+
+        double estimate = 0;
+        for(int j = 0; j <= k; j++)
+        {
+            int n = count - k + j;             //number of terms of this partial sum
+            double sign = ((j + k) % 2 == 0) ? 1 : -1;
+            estimate += sign * s[n - 1] * Math.pow(n, k) / (factorial(j) * factorial(k - j));
+        }
+        return estimate;
+    }
+
+    /**
+     * Returns n! as a double.
+     * @param n : non negative integer
+     * @return : n!
+     */
+    private static double factorial(int n)
+    {
+        double f = 1;
+        for(int i = 2; i <= n; i++)
+            f *= i;
+        return f;
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
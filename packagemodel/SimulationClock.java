@@ -0,0 +1,204 @@
+package packagemodel;
+
+/**
+ * Fixed timestep clock. Real time fed to advance() is scaled by the time scale and accumulated,
+ * the simulation is stepped by whole time steps and rendered once per call with the fraction of
+ * the next step already elapsed, so the state after n steps never depends on the frame rate.
+ * step(n) advances without any real time, e.g. to test or benchmark a simulation headlessly.
+ * @author patrickspensieri
+ */
+public class SimulationClock
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    /**
+     * Simulation advanced by the clock.
+     */
+    public interface Simulation
+    {
+        /**
+         * Advances the state by one time step.
+         * @param time : simulated time at the start of the step, in seconds
+         * @param dt : time step, in seconds
+         */
+        void step(double time, double dt);
+
+        /**
+         * Draws the state, interpolated between the last step and the next one.
+         * @param time : simulated time reached by the last step, in seconds
+         * @param alpha : fraction of the next step elapsed, from 0 to 1
+         */
+        void render(double time, double alpha);
+    }
+
+    public static final double MIN_TIME_SCALE = 0.1;
+    public static final double MAX_TIME_SCALE = 100;
+    public static final int DEFAULT_MAX_STEPS = 10000;  //steps per advance() before time is dropped
+
+    private final double timeStep;          //in seconds
+    private Simulation simulation;
+    private long stepCount;                 //steps since the last reset, the time is stepCount * timeStep
+    private double accumulator;             //scaled time not stepped yet, in seconds
+    private double timeScale = 1;
+    private int maxStepsPerAdvance = DEFAULT_MAX_STEPS;
+    private boolean halted;                 //set by the simulation once its run is over
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    /**
+     * Creates a clock at time 0.
+     * @param timeStep : simulated time of one step, in seconds
+     */
+    public SimulationClock(double timeStep)
+    {
+        if(!(timeStep > 0))
+            throw new IllegalArgumentException("time step must be positive : " + timeStep);
+        this.timeStep = timeStep;
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    /**
+     * Replaces the simulation and rewinds the clock to time 0.
+     * @param simulation : simulation to advance, null for none
+     */
+    public void setSimulation(Simulation simulation)
+    {
+        this.simulation = simulation;
+        reset();
+    }
+
+    public Simulation getSimulation()
+    {
+        return simulation;
+    }
+
+    /**
+     * Rewinds the clock to time 0 and lets it run again.
+     */
+    public void reset()
+    {
+        setTime(0);
+    }
+
+    /**
+     * Moves the clock to the step closest to a time, without stepping the simulation. A halted
+     * clock runs again.
+     * @param time : simulated time, in seconds
+     */
+    public void setTime(double time)
+    {
+        stepCount = Math.max(0, Math.round(time / timeStep));
+        accumulator = 0;
+        halted = false;
+    }
+
+    /**
+     * Advances by real time : steps the simulation by every whole time step of the scaled time
+     * accumulated, then renders it. At most maxStepsPerAdvance steps are taken, the rest of the
+     * time is dropped so a slow frame does not snowball.
+     * @param realTime : real time since the previous call, in seconds
+     * @return : number of steps taken
+     */
+    public int advance(double realTime)
+    {
+        if(simulation == null || halted)
+            return 0;
+        accumulator += realTime * timeScale;
+        int steps = 0;
+        while(accumulator >= timeStep && steps < maxStepsPerAdvance && !halted)
+        {
+            simulation.step(stepCount * timeStep, timeStep);
+            stepCount++;
+            accumulator -= timeStep;
+            steps++;
+        }
+        if(steps == maxStepsPerAdvance)
+            accumulator = Math.min(accumulator, timeStep);
+        if(!halted)
+            simulation.render(getTime(), Math.min(accumulator / timeStep, 1));
+        return steps;
+    }
+
+    /**
+     * Advances by exactly n steps, whatever the time scale and real time, then renders the state
+     * reached. Stops early if the simulation halts the clock.
+     * @param n : number of steps
+     * @return : number of steps taken
+     */
+    public int step(int n)
+    {
+        if(simulation == null)
+            return 0;
+        int steps = 0;
+        accumulator = 0;
+        while(steps < n && !halted)
+        {
+            simulation.step(stepCount * timeStep, timeStep);
+            stepCount++;
+            steps++;
+        }
+        if(!halted)
+            simulation.render(getTime(), 0);
+        return steps;
+    }
+
+    /**
+     * Stops stepping until the clock is reset, called by the simulation when its run is over.
+     * The step being taken completes, nothing is rendered after it.
+     */
+    public void halt()
+    {
+        halted = true;
+    }
+
+    public boolean isHalted()
+    {
+        return halted;
+    }
+
+    /**
+     * Returns the simulated time reached by the last step.
+     * @return : in seconds
+     */
+    public double getTime()
+    {
+        return stepCount * timeStep;
+    }
+
+    public long getStepCount()
+    {
+        return stepCount;
+    }
+
+    public double getTimeStep()
+    {
+        return timeStep;
+    }
+
+    /**
+     * Sets the simulated seconds per real second, clamped to [MIN_TIME_SCALE, MAX_TIME_SCALE].
+     * @param timeScale : 1 for real time, below 1 for slow motion
+     */
+    public void setTimeScale(double timeScale)
+    {
+        this.timeScale = Math.max(MIN_TIME_SCALE, Math.min(timeScale, MAX_TIME_SCALE));
+    }
+
+    public double getTimeScale()
+    {
+        return timeScale;
+    }
+
+    /**
+     * Sets the number of steps one advance() may take.
+     * @param maxStepsPerAdvance : at least 1
+     */
+    public void setMaxStepsPerAdvance(int maxStepsPerAdvance)
+    {
+        this.maxStepsPerAdvance = Math.max(1, maxStepsPerAdvance);
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
@@ -0,0 +1,150 @@
+package packagemodel;
+
+import java.util.Arrays;
+
+/**
+ * Square sparse matrix in compressed sparse row form. The sparsity pattern is fixed when the matrix is
+ * built from a list of (row, column) entries, duplicates being merged, and the values can then be
+ * refilled as often as needed through the slot of every entry.
+ * @author patrickspensieri
+ */
+public class SparseMatrix
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    private final int size;
+    private final int[] rowStart;           //entries of row i are rowStart[i]..rowStart[i+1]-1
+    private final int[] columns;
+    private final double[] values;
+    private final int[] slots;              //slots[k] = position in values of the k-th entry given to the constructor
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    /**
+     * Builds the sparsity pattern from a list of entries, all values are zero.
+     * @param size : number of rows and columns
+     * @param entryRows : row of every entry
+     * @param entryColumns : column of every entry
+     * @param count : number of entries
+     */
+    public SparseMatrix(int size, int[] entryRows, int[] entryColumns, int count)
+    {
+        this.size = size;
+        //sort the entries by row, then by column : counting sort by column, then a stable one by row
+        int[] next = new int[size + 1];
+        for(int k = 0; k < count; k++)
+            next[entryColumns[k] + 1]++;
+        for(int i = 0; i < size; i++)
+            next[i + 1] += next[i];
+        int[] byColumn = new int[count];
+        for(int k = 0; k < count; k++)
+            byColumn[next[entryColumns[k]]++] = k;
+        Arrays.fill(next, 0);
+        for(int k = 0; k < count; k++)
+            next[entryRows[k] + 1]++;
+        for(int i = 0; i < size; i++)
+            next[i + 1] += next[i];
+        int[] sorted = new int[count];
+        for(int j = 0; j < count; j++)
+            sorted[next[entryRows[byColumn[j]]]++] = byColumn[j];
+
+        rowStart = new int[size + 1];
+        int[] tempColumns = new int[count];
+        slots = new int[count];
+        int stored = 0;
+        int previousRow = -1, previousColumn = -1;
+        for(int j = 0; j < count; j++)
+        {
+            int entry = sorted[j];
+            int row = entryRows[entry];
+            int column = entryColumns[entry];
+            if(row != previousRow || column != previousColumn)
+            {
+                tempColumns[stored] = column;
+                rowStart[row + 1]++;
+                stored++;
+                previousRow = row;
+                previousColumn = column;
+            }
+            slots[entry] = stored - 1;
+        }
+        for(int i = 0; i < size; i++)
+            rowStart[i + 1] += rowStart[i];
+        columns = Arrays.copyOf(tempColumns, stored);
+        values = new double[stored];
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    /**
+     * Sets every value to zero, the pattern is kept.
+     */
+    public void clearValues()
+    {
+        Arrays.fill(values, 0);
+    }
+
+    /**
+     * Adds a value to an entry.
+     * @param entry : index of the entry in the list given to the constructor
+     * @param value : added value
+     */
+    public void addToEntry(int entry, double value)
+    {
+        values[slots[entry]] += value;
+    }
+
+    /**
+     * Computes y = A x.
+     * @param x : input vector
+     * @param y : output vector
+     */
+    public void multiply(double[] x, double[] y)
+    {
+        for(int i = 0; i < size; i++)
+        {
+            double sum = 0;
+            for(int k = rowStart[i]; k < rowStart[i + 1]; k++)
+                sum += values[k] * x[columns[k]];
+            y[i] = sum;
+        }
+    }
+
+    /**
+     * Writes the diagonal of the matrix.
+     * @param out : output, zero where the diagonal entry is not stored
+     */
+    public void getDiagonal(double[] out)
+    {
+        for(int i = 0; i < size; i++)
+        {
+            out[i] = 0;
+            for(int k = rowStart[i]; k < rowStart[i + 1]; k++)
+            {
+                if(columns[k] == i)
+                    out[i] = values[k];
+            }
+        }
+    }
+
+    /**
+     * Returns the number of rows (and columns).
+     * @return : size
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the number of stored entries.
+     * @return : non zeros
+     */
+    public int getNonZeroCount()
+    {
+        return values.length;
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
@@ -0,0 +1,126 @@
+package packagemodel;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed range histogram that several threads fill concurrently. Each worker counts into its own
+ * long[] and merges it now and then, so the shared counters are touched once per bin per merge
+ * rather than once per sample. Values outside the range are counted in the first or last bin.
+ * @author patrickspensieri
+ */
+public class StreamingHistogram
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    private final double lower;
+    private final double binWidth;
+    private final AtomicLongArray counts;
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    public StreamingHistogram(double lower, double upper, int bins)
+    {
+        this.lower = lower;
+        binWidth = (upper - lower) / bins;
+        counts = new AtomicLongArray(bins);
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    /**
+     * Returns the bin of a value, clamped to the range.
+     * @param value : value
+     * @return : bin index
+     */
+    public int binOf(double value)
+    {
+        int bin = (int)Math.floor((value - lower) / binWidth);
+        return Math.max(0, Math.min(counts.length() - 1, bin));
+    }
+
+    /**
+     * Adds local counts to the histogram and clears them.
+     * @param local : counts of one worker, one per bin
+     */
+    public void merge(long[] local)
+    {
+        for(int i = 0; i < local.length; i++)
+        {
+            if(local[i] != 0)
+            {
+                counts.addAndGet(i, local[i]);
+                local[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Copies the current counts.
+     * @param out : output, one per bin
+     * @return : total count
+     */
+    public long snapshot(long[] out)
+    {
+        long total = 0;
+        for(int i = 0; i < out.length; i++)
+        {
+            out[i] = counts.get(i);
+            total += out[i];
+        }
+        return total;
+    }
+
+    /**
+     * Empties the histogram.
+     */
+    public void clear()
+    {
+        for(int i = 0; i < counts.length(); i++)
+            counts.set(i, 0);
+    }
+
+    /**
+     * Returns the p-th quantile of a snapshot, interpolated linearly within its bin.
+     * @param snapshot : counts, as returned by snapshot()
+     * @param total : sum of the counts
+     * @param p : probability, from 0 to 1
+     * @return : quantile, NaN if the snapshot is empty
+     */
+    public double percentile(long[] snapshot, long total, double p)
+    {
+        if(total == 0)
+            return Double.NaN;
+        double target = p * total;
+        long cumulative = 0;
+        for(int i = 0; i < snapshot.length; i++)
+        {
+            if(cumulative + snapshot[i] >= target && snapshot[i] > 0)
+                return getBinStart(i) + binWidth * (target - cumulative) / snapshot[i];
+            cumulative += snapshot[i];
+        }
+        return getBinStart(snapshot.length);
+    }
+
+    /**
+     * Returns the lower edge of a bin.
+     * @param bin : bin index
+     * @return : lower edge
+     */
+    public double getBinStart(int bin)
+    {
+        return lower + bin * binWidth;
+    }
+
+    public double getBinWidth()
+    {
+        return binWidth;
+    }
+
+    public int getBinCount()
+    {
+        return counts.length();
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}
@@ -0,0 +1,315 @@
+package packagemodel;
+
+import java.util.Arrays;
+
+/**
+ * Transient response of parallel branches switched onto a voltage source at t = 0. The source has an
+ * internal resistance, and every branch is a resistor alone or in series with a capacitor or an
+ * inductor. Reactive elements are replaced at every step by their companion model (a conductance and a
+ * history source) for backward Euler or the trapezoidal rule, so the single unknown node voltage is
+ * solved in closed form. Both methods are A-stable, so any time step is stable however stiff the time
+ * constants are; backward Euler also damps the fastest modes instead of letting them ring.
+ * The time, node voltage, source current and branch currents of every step are kept in primitive buffers.
+ * @author patrickspensieri
+ */
+public class TransientParallelCircuit
+{
+    // DATA FIELDS /////////////////////////////////////////////////////////////
+    private static final int INITIAL_CAPACITY = 1024;
+
+    public enum Element { NONE, CAPACITOR, INDUCTOR }
+    public enum Method { BACKWARD_EULER, TRAPEZOIDAL }
+
+    private final int branches;
+    private final double[] resistances;         // in ohms
+    private final Element[] elements;
+    private final double[] elementValues;       // in farads or henries
+    private double sourceVoltage;               // in volts
+    private double sourceResistance;            // in ohms, 0 for an ideal source
+    private double timeStep = 1.0e-5;           // in seconds
+    private Method method = Method.BACKWARD_EULER;
+
+    //state
+    private double time;
+    private final double[] capacitorVoltages;   // in volts
+    private final double[] branchCurrents;      // in amps
+    private final double[] elementVoltages;     //voltage across the reactive element, used by the trapezoidal rule
+    private final double[] conductance, history;   //companion model of every branch : i = g (v - e)
+
+    //recorded waveforms
+    private double[] times, nodeVoltages, sourceCurrents;
+    private double[][] branchWaveforms;
+    private int samples;
+
+    // END DATA FIELDS /////////////////////////////////////////////////////////
+
+    // CONSTRUCTOR(S) //////////////////////////////////////////////////////////
+    public TransientParallelCircuit(int branches)
+    {
+        this.branches = branches;
+        resistances = new double[branches];
+        elements = new Element[branches];
+        elementValues = new double[branches];
+        Arrays.fill(resistances, 1.0);
+        Arrays.fill(elements, Element.NONE);
+        capacitorVoltages = new double[branches];
+        branchCurrents = new double[branches];
+        elementVoltages = new double[branches];
+        conductance = new double[branches];
+        history = new double[branches];
+        times = new double[INITIAL_CAPACITY];
+        nodeVoltages = new double[INITIAL_CAPACITY];
+        sourceCurrents = new double[INITIAL_CAPACITY];
+        branchWaveforms = new double[branches][INITIAL_CAPACITY];
+    }
+
+    // END CONSTRUCTOR(S) //////////////////////////////////////////////////////
+
+    // DATA METHODS ////////////////////////////////////////////////////////////
+    /**
+     * Sets the components of a branch.
+     * @param b : branch
+     * @param resistance : series resistance, in ohms, positive
+     * @param element : reactive element in series, NONE for a pure resistor
+     * @param value : capacitance in farads or inductance in henries
+     */
+    public void setBranch(int b, double resistance, Element element, double value)
+    {
+        resistances[b] = resistance;
+        elements[b] = element;
+        elementValues[b] = value;
+    }
+
+    /**
+     * Sets the source switched on at t = 0.
+     * @param voltage : in volts
+     * @param resistance : internal resistance, in ohms, 0 for an ideal source
+     */
+    public void setSource(double voltage, double resistance)
+    {
+        sourceVoltage = voltage;
+        sourceResistance = resistance;
+    }
+
+    public void setTimeStep(double timeStep)
+    {
+        this.timeStep = timeStep;
+    }
+
+    public double getTimeStep()
+    {
+        return timeStep;
+    }
+
+    public void setMethod(Method method)
+    {
+        this.method = method;
+    }
+
+    /**
+     * Returns the longest time constant of the branches, source resistance included.
+     * @return : time constant, in seconds, 0 if there is no reactive element
+     */
+    public double getLongestTimeConstant()
+    {
+        double longest = 0;
+        for(int b = 0; b < branches; b++)
+        {
+            double r = resistances[b] + sourceResistance;
+            if(elements[b] == Element.CAPACITOR)
+                longest = Math.max(longest, r * elementValues[b]);
+            else if(elements[b] == Element.INDUCTOR)
+                longest = Math.max(longest, elementValues[b] / resistances[b]);
+        }
+        return longest;
+    }
+
+    /**
+     * Discharges every element and empties the waveforms, then records the state at t = 0.
+     */
+    public void reset()
+    {
+        time = 0;
+        samples = 0;
+        Arrays.fill(capacitorVoltages, 0);
+        Arrays.fill(branchCurrents, 0);
+        Arrays.fill(elementVoltages, 0);
+        //just after switching : capacitors act as shorts (vc = 0), inductors as opens (i = 0)
+        for(int b = 0; b < branches; b++)
+        {
+            conductance[b] = (elements[b] == Element.INDUCTOR) ? 0 : 1.0 / resistances[b];
+            history[b] = 0;
+        }
+        double v = solveNode();
+        for(int b = 0; b < branches; b++)
+        {
+            branchCurrents[b] = conductance[b] * (v - history[b]);
+            if(elements[b] == Element.INDUCTOR)
+                elementVoltages[b] = v;
+        }
+        record(v);
+    }
+
+    /**
+     * Advances the circuit by a number of time steps, recording every one.
+     * @param count : number of steps
+     */
+    public void step(int count)
+    {
+        double h = timeStep;
+        boolean trapezoidal = (method == Method.TRAPEZOIDAL);
+        for(int s = 0; s < count; s++)
+        {
+            for(int b = 0; b < branches; b++)
+            {
+                double r = resistances[b];
+                double value = elementValues[b];
+                switch(elements[b])
+                {
+                    case CAPACITOR :
+                        if(trapezoidal)
+                        {
+                            conductance[b] = 1.0 / (r + h / (2 * value));
+                            history[b] = capacitorVoltages[b] + h / (2 * value) * branchCurrents[b];
+                        }
+                        else
+                        {
+                            conductance[b] = 1.0 / (r + h / value);
+                            history[b] = capacitorVoltages[b];
+                        }
+                        break;
+                    case INDUCTOR :
+                        if(trapezoidal)
+                        {
+                            conductance[b] = 1.0 / (r + 2 * value / h);
+                            history[b] = -(elementVoltages[b] + 2 * value / h * branchCurrents[b]);
+                        }
+                        else
+                        {
+                            conductance[b] = 1.0 / (r + value / h);
+                            history[b] = -(value / h) * branchCurrents[b];
+                        }
+                        break;
+                    default :
+                        conductance[b] = 1.0 / r;
+                        history[b] = 0;
+                }
+            }
+
+            double v = solveNode();
+            time += h;
+            for(int b = 0; b < branches; b++)
+            {
+                double previous = branchCurrents[b];
+                double current = conductance[b] * (v - history[b]);
+                branchCurrents[b] = current;
+                if(elements[b] == Element.CAPACITOR)
+                {
+                    capacitorVoltages[b] += trapezoidal ? h / (2 * elementValues[b]) * (current + previous)
+                            : h / elementValues[b] * current;
+                }
+                else if(elements[b] == Element.INDUCTOR)
+                    elementVoltages[b] = v - resistances[b] * current;
+            }
+            record(v);
+        }
+    }
+
+    /**
+     * Solves the node voltage from the companion models : (V - v) / Rs = sum of g (v - e).
+     * @return : node voltage, in volts
+     */
+    private double solveNode()
+    {
+        double g = 0;
+        double injected = 0;
+        for(int b = 0; b < branches; b++)
+        {
+            g += conductance[b];
+            injected += conductance[b] * history[b];
+        }
+        if(sourceResistance == 0)
+            return sourceVoltage;
+        return (sourceVoltage / sourceResistance + injected) / (1.0 / sourceResistance + g);
+    }
+
+    /**
+     * Appends the current state to the waveforms.
+     * @param v : node voltage
+     */
+    private void record(double v)
+    {
+        if(samples == times.length)
+        {
+            int capacity = samples * 2;
+            times = Arrays.copyOf(times, capacity);
+            nodeVoltages = Arrays.copyOf(nodeVoltages, capacity);
+            sourceCurrents = Arrays.copyOf(sourceCurrents, capacity);
+            for(int b = 0; b < branches; b++)
+                branchWaveforms[b] = Arrays.copyOf(branchWaveforms[b], capacity);
+        }
+        double total = 0;
+        for(int b = 0; b < branches; b++)
+        {
+            branchWaveforms[b][samples] = branchCurrents[b];
+            total += branchCurrents[b];
+        }
+        times[samples] = time;
+        nodeVoltages[samples] = v;
+        sourceCurrents[samples] = total;
+        samples++;
+    }
+
+    public double getTime()
+    {
+        return time;
+    }
+
+    /**
+     * Returns the number of recorded steps, the initial state included.
+     * @return : samples
+     */
+    public int getSampleCount()
+    {
+        return samples;
+    }
+
+    /**
+     * Returns the time of every recorded step, valid up to getSampleCount().
+     * @return : times, in seconds
+     */
+    public double[] getTimes()
+    {
+        return times;
+    }
+
+    /**
+     * Returns the voltage across the branches at every recorded step.
+     * @return : voltages, in volts
+     */
+    public double[] getNodeVoltages()
+    {
+        return nodeVoltages;
+    }
+
+    /**
+     * Returns the current delivered by the source at every recorded step.
+     * @return : currents, in amps
+     */
+    public double[] getSourceCurrents()
+    {
+        return sourceCurrents;
+    }
+
+    /**
+     * Returns the current of a branch at every recorded step.
+     * @param b : branch
+     * @return : currents, in amps
+     */
+    public double[] getBranchCurrents(int b)
+    {
+        return branchWaveforms[b];
+    }
+
+    // END DATA METHODS ////////////////////////////////////////////////////////
+}